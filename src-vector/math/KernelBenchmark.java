@@ -0,0 +1,168 @@
+package math;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+
+/**
+ * Vergleicht die Laufzeiten von ScalarKernels und SimdKernels fr die
+ * Abschnittslngen, die bei den Layern der Netze vorkommen. Gemessen werden
+ * dot und axpy einzeln sowie die Produkte einer Gewichtsmatrix mit einem
+ * Vektor von rechts (Reihe fr Reihe ein Skalarprodukt, wie in
+ * Matrix.multInto) und von links (Reihe fr Reihe ein axpy, wie bei der
+ * Rckpropagation des Fehlers). scale, add und mult sind in beiden Klassen
+ * dieselben Schleifen.
+ *
+ * <pre>
+ * java --add-modules jdk.incubator.vector -cp classes math.KernelBenchmark
+ * </pre>
+ *
+ * @author Roland Vlker
+ */
+public final class KernelBenchmark {
+
+  /**
+   * Die gemessenen Abschnittslngen.
+   */
+  private static final int SIZES[] = { 40, 64, 256, 1024, 4096 };
+
+  /**
+   * Wie viele Werte pro Messung mindestens verarbeitet werden, damit auch
+   * kurze Abschnitte lange genug laufen.
+   */
+  private static final long WORK = 20_000_000L;
+
+  /**
+   * Die Anzahl der Messrunden pro Implementierung.
+   */
+  private static final int ROUNDS = 7;
+
+  /**
+   * Verhindert, dass der JIT-Compiler unbenutzte Ergebnisse wegoptimiert.
+   */
+  private static double sink;
+
+
+  private KernelBenchmark() {
+  }
+
+
+  /**
+   * Fhrt die Messungen aus und gibt pro Rechenkern und Lnge die Zeit pro
+   * Aufruf sowie den Geschwindigkeitsgewinn aus.
+   *
+   * @param args Wird nicht verwendet.
+   */
+  public static void main(String args[]) {
+    ArrayKernels scalar = new ScalarKernels();
+    ArrayKernels simd = new SimdKernels();
+
+    System.out.println("Kernels verwendet: "
+        + Kernels.ARRAYS.getClass().getSimpleName() + ", Vektorbreite "
+        + jdk.incubator.vector.DoubleVector.SPECIES_PREFERRED.length());
+    System.out.println(
+        "Kern               Lnge   skalar ns    SIMD ns  Faktor");
+
+    for (int n : SIZES) {
+      double x[] = random(n, 1);
+      double y[] = random(n, 2);
+
+      compare("dot", n, k -> sink += k.dot(x, 0, y, 0, n), scalar, simd);
+    }
+
+    for (int n : SIZES) {
+      double x[] = random(n, 1);
+      double y[] = random(n, 2);
+
+      // Abwechselnd plus und minus, damit die Werte nicht anwachsen
+      compare("axpy", n, k -> {
+        k.axpy(1e-3, x, 0, y, 0, n);
+        k.axpy(-1e-3, x, 0, y, 0, n);
+      }, scalar, simd);
+    }
+
+    // Gewichtsmatrizen in der Gre typischer Layer (Reihen x Spalten)
+    int shapes[][] = { { 64, 41 }, { 32, 65 }, { 256, 1025 },
+        { 1024, 1025 } };
+
+    for (int shape[] : shapes) {
+      int rows = shape[0];
+      int cols = shape[1];
+      double w[] = random(rows * cols, 3);
+      double v[] = random(cols, 4);
+      double out[] = new double[rows];
+
+      compare("W*v " + rows + "x" + cols, rows * cols, k -> {
+        for (int i = 0; i < rows; i++)
+          out[i] = k.dot(w, i * cols, v, 0, cols);
+      }, scalar, simd);
+
+      double u[] = random(rows, 5);
+      double res[] = new double[cols];
+
+      compare("v^T*W " + rows + "x" + cols, rows * cols, k -> {
+        Arrays.fill(res, 0);
+
+        for (int i = 0; i < rows; i++)
+          k.axpy(u[i], w, i * cols, res, 0, cols);
+      }, scalar, simd);
+    }
+
+    System.out.println("(Prfwert " + sink + ")");
+  }
+
+
+  /**
+   * Ein Aufruf eines Rechenkerns mit einer bestimmten Implementierung.
+   */
+  private interface Call {
+
+    void run(ArrayKernels kernels);
+  }
+
+
+  /**
+   * Misst einen Aufruf mit beiden Implementierungen und gibt das Ergebnis
+   * aus.
+   */
+  private static void compare(String name, int n, Call call,
+      ArrayKernels scalar, ArrayKernels simd) {
+    int repeat = (int) Math.max(1, WORK / n);
+    double t0 = Double.MAX_VALUE;
+    double t1 = Double.MAX_VALUE;
+
+    // Abwechselnd messen und jeweils die beste Runde nehmen. Die erste Runde
+    // dient zugleich dem Aufwrmen des JIT-Compilers.
+    for (int round = 0; round < ROUNDS; round++) {
+      t0 = Math.min(t0, time(call, scalar, repeat));
+      t1 = Math.min(t1, time(call, simd, repeat));
+    }
+
+    System.out.printf("%-16s %7d %10.1f %10.1f %7.2f%n", name, n, t0, t1,
+        t0 / t1);
+  }
+
+
+  /**
+   * @return Die mittlere Zeit eines Aufrufs in Nanosekunden.
+   */
+  private static double time(Call call, ArrayKernels kernels, int repeat) {
+    long start = System.nanoTime();
+
+    for (int r = 0; r < repeat; r++)
+      call.run(kernels);
+
+    return (System.nanoTime() - start) / (double) repeat;
+  }
+
+
+  private static double[] random(int n, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    double res[] = new double[n];
+
+    for (int i = 0; i < n; i++)
+      res[i] = random.nextDouble() - 0.5;
+
+    return res;
+  }
+}
@@ -0,0 +1,84 @@
+package math;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+
+/**
+ * Die Rechenkerne mit der Vector API des JDK. dot und axpy verarbeiten pro
+ * Befehl so viele double-Werte, wie in ein Register der bevorzugten Breite
+ * passen (4 bei AVX2, 8 bei AVX-512). Die streng der Reihe nach gebildete
+ * Summe in ScalarKernels kann der JIT-Compiler nicht vektorisieren. axpy ist
+ * in den Matrixprodukten, die es Reihe fr Reihe aufrufen, deutlich schneller,
+ * einzeln auf langen Abschnitten etwa gleich. scale, add und mult bersetzt
+ * der JIT-Compiler selbst in SIMD-Befehle, mit der Vector API waren sie
+ * langsamer. Sie werden deshalb von ScalarKernels bernommen (siehe
+ * KernelBenchmark).
+ *
+ * Diese Klasse bentigt das Modul jdk.incubator.vector und wird von Kernels
+ * nur per Reflection geladen (siehe dort).
+ *
+ * @author Roland Vlker
+ */
+final class SimdKernels extends ScalarKernels {
+
+  /**
+   * Die bevorzugte Vektorbreite der Plattform.
+   */
+  private static final VectorSpecies<Double> SPECIES =
+      DoubleVector.SPECIES_PREFERRED;
+
+
+  /**
+   * Summiert in zwei Vektoren von Teilsummen, damit nicht jede
+   * Multiplikation-Addition auf die vorige warten muss. Das Ergebnis hngt
+   * daher von der Vektorbreite ab, ist fr eine Plattform aber immer gleich.
+   */
+  @Override
+  public double dot(double x[], int xOff, double y[], int yOff, int n) {
+    final int step = SPECIES.length();
+    DoubleVector s0 = DoubleVector.zero(SPECIES);
+    DoubleVector s1 = DoubleVector.zero(SPECIES);
+    int i = 0;
+
+    for (; i + 2 * step <= n; i += 2 * step) {
+      s0 = DoubleVector.fromArray(SPECIES, x, xOff + i)
+          .fma(DoubleVector.fromArray(SPECIES, y, yOff + i), s0);
+      s1 = DoubleVector.fromArray(SPECIES, x, xOff + i + step)
+          .fma(DoubleVector.fromArray(SPECIES, y, yOff + i + step), s1);
+    }
+
+    for (; i + step <= n; i += step)
+      s0 = DoubleVector.fromArray(SPECIES, x, xOff + i)
+          .fma(DoubleVector.fromArray(SPECIES, y, yOff + i), s0);
+
+    double sum = s0.add(s1).reduceLanes(VectorOperators.ADD);
+
+    for (; i < n; i++)
+      sum += x[xOff + i] * y[yOff + i];
+
+    return sum;
+  }
+
+
+  /**
+   * Multipliziert und addiert getrennt (keine fma), die Ergebnisse gleichen
+   * also genau denen von ScalarKernels.
+   */
+  @Override
+  public void axpy(double alpha, double x[], int xOff, double y[], int yOff,
+      int n) {
+    final int step = SPECIES.length();
+    final int bound = SPECIES.loopBound(n);
+    int i = 0;
+
+    for (; i < bound; i += step)
+      DoubleVector.fromArray(SPECIES, x, xOff + i).mul(alpha)
+          .add(DoubleVector.fromArray(SPECIES, y, yOff + i))
+          .intoArray(y, yOff + i);
+
+    for (; i < n; i++)
+      y[yOff + i] += alpha * x[xOff + i];
+  }
+}
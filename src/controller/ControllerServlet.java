@@ -5,6 +5,9 @@ import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -18,6 +21,9 @@ import javax.servlet.http.HttpServletResponse;
 import org.json.JSONObject;
 
 import data.DataHandler;
+import data.DataPattern;
+import math.Activation;
+import net.Checkpoint;
 import net.Net;
 import net.Training;
 
@@ -30,6 +36,13 @@ public class ControllerServlet extends HttpServlet {
    */
   private static final long serialVersionUID = 829723344578124002L;
 
+  /**
+   * Das Verzeichnis, in dem Netze gespeichert werden. Es lässt sich über die
+   * Systemeigenschaft "model.dir" festlegen.
+   */
+  private static final Path MODEL_DIR = Paths
+      .get(System.getProperty("model.dir", "models"));
+
   /**
    * Stellt die Layer und Grundfunktionen des neuronalen Netzes zur Verfügung.
    */
@@ -71,10 +84,14 @@ public class ControllerServlet extends HttpServlet {
     final double shrinkFactor = json.getDouble("shrinkFactor");
     final int estimateLength = json.getInt("estimateLength");
     List<Integer> hiddenLayers = makeList(json.getString("hiddenLayers"));
+    List<Activation> activations = makeActivationList(
+        json.getString("hiddenLayers"));
 
     // Init Model Objects
     net = new Net(estimateLength, hiddenLayers,
         dataHandler.getData().keySet().size());
+    for (int i = 0; i < activations.size(); i++)
+      net.setActivation(i, activations.get(i));
     training = new Training(net, increaseFactor, shrinkFactor);
 
     training.setPatterns(dataHandler.getTrainingPatterns(estimateLength));
@@ -82,19 +99,100 @@ public class ControllerServlet extends HttpServlet {
 
 
   /**
-   * @return Den String ("Integer, Integer, ...") als Integer-Liste.
+   * Prüft, ob das vorhandene neuronale Netz zu den in der grafischen
+   * Oberfläche angegebenen Einstellungen und den Daten passt, also mit
+   * continueModel weitertrainiert werden kann.
+   */
+  private boolean fitsModel(JSONObject json) {
+    if (net == null || dataHandler.getData() == null)
+      return false;
+
+    final int estimateLength = json.getInt("estimateLength");
+    List<Integer> structure = makeList(json.getString("hiddenLayers"));
+    List<Activation> activations = makeActivationList(
+        json.getString("hiddenLayers"));
+
+    structure.add(0, estimateLength * dataHandler.getData().keySet().size());
+    structure.add(1);
+
+    if (net.getEstimateLength() != estimateLength
+        || !net.getStructure().equals(structure))
+      return false;
+
+    for (int i = 0; i < activations.size(); i++)
+      if (!net.get(i).getActivation().getName()
+          .equals(activations.get(i).getName()))
+        return false;
+
+    return true;
+  }
+
+
+  /**
+   * Setzt das Training des vorhandenen neuronalen Netzes fort, statt es neu
+   * zu initialisieren. Gewichte und RPROP-Schrittweiten stehen in den Layern
+   * und bleiben erhalten. Von den Trainingsmustern werden nur die der
+   * angehängten Daten neu erzeugt (siehe DataHandler.appendData).
+   */
+  private void continueModel(JSONObject json) {
+    DataPattern previous[] = training == null ? null : training.getPatterns();
+
+    training = new Training(net, json.getDouble("increaseFactor"),
+        json.getDouble("shrinkFactor"));
+
+    training.setPatterns(
+        dataHandler.getTrainingPatterns(net.getEstimateLength(), previous));
+  }
+
+
+  /**
+   * Hinter jeder Größe darf, durch Leerzeichen getrennt, die
+   * Aktivierungsfunktion des Layers stehen (z.B. "64 relu, 32 tanh, 16").
+   * 
+   * @return Die Größen aus dem String ("Integer [Name], Integer [Name], ...")
+   *         als Integer-Liste.
    * @throws NumberFormatException Falls beim Parsen etwas schief gelaufen ist.
    */
   private List<Integer> makeList(String listString)
       throws NumberFormatException {
-    if (listString.length() == 0)
-      return new ArrayList<>();
+    List<Integer> res = new ArrayList<>();
 
-    String netLayers[] = listString.replaceAll("\\s+", "").split(",");
+    for (String netLayer[] : splitLayers(listString))
+      res.add(Integer.parseInt(netLayer[0]));
+
+    return res;
+  }
+
+
+  /**
+   * @return Die Aktivierungsfunktionen aus dem String ("Integer [Name],
+   *         Integer [Name], ...") als Liste, ohne Angabe die Sigmoid-Funktion
+   *         (siehe Activation.forName).
+   * @throws IllegalArgumentException Falls ein Name unbekannt ist.
+   */
+  private List<Activation> makeActivationList(String listString) {
+    List<Activation> res = new ArrayList<>();
+
+    for (String netLayer[] : splitLayers(listString))
+      res.add(netLayer.length > 1 ? Activation.forName(netLayer[1])
+          : Activation.SIGMOID);
+
+    return res;
+  }
 
-    List<Integer> res = new ArrayList<>();
-    for (int i = 0; i < netLayers.length; i++)
-      res.add(Integer.parseInt(netLayers[i]));
+
+  /**
+   * @return Die Einträge des Strings ("Integer [Name], ..."), jeweils in ihre
+   *         durch Leerzeichen getrennten Teile zerlegt.
+   */
+  private List<String[]> splitLayers(String listString) {
+    List<String[]> res = new ArrayList<>();
+
+    if (listString.trim().length() == 0)
+      return res;
+
+    for (String netLayer : listString.split(","))
+      res.add(netLayer.trim().split("\\s+"));
 
     return res;
   }
@@ -103,14 +201,19 @@ public class ControllerServlet extends HttpServlet {
   /**
    * Startet das Training, falls es nicht bereits läuft. Wenn das Training
    * gestoppt und nicht pausiert ist, wird das neuronale Netz mitsamt der
-   * Trainingsparameter neu initialisiert.
+   * Trainingsparameter neu initialisiert. Ist "warmStart" gesetzt und passt
+   * das vorhandene Netz zu den Einstellungen, wird es stattdessen
+   * weitertrainiert (siehe continueModel).
    */
   private void startTraining(final JSONObject object) {
     if (trainingThread != null)
       if (trainingThread.isAlive())
         return; // No restart while running
 
-    initModel(object);
+    if (object.optBoolean("warmStart") && fitsModel(object))
+      continueModel(object);
+    else
+      initModel(object);
     trainingThread = new Thread(() -> training.train(object.getInt("epochs")));
     trainingThread.start();
   }
@@ -132,6 +235,106 @@ public class ControllerServlet extends HttpServlet {
   }
 
 
+  /**
+   * Stoppt das Training und übernimmt die Daten der Anfrage. Ist "append"
+   * gesetzt, werden sie an die vorhandenen Daten angehängt, sodass das Netz
+   * anschließend weitertrainiert werden kann (siehe startTraining).
+   * Andernfalls ersetzen sie die vorhandenen Daten, die bisherigen
+   * Trainingsmuster werden dann verworfen.
+   */
+  private void readData(JSONObject json) {
+    stopTraining();
+
+    var jsonData = json.getJSONArray("jsonData");
+    var outputValue = json.getString("outputValue");
+
+    if (json.optBoolean("append")
+        && dataHandler.appendData(jsonData, outputValue))
+      return;
+
+    dataHandler.readData(jsonData, outputValue);
+    training = null;
+  }
+
+
+  /**
+   * Gibt die Datei zu einem Modellnamen zurück. Erlaubt sind nur Buchstaben,
+   * Ziffern, '_' und '-', damit keine Dateien außerhalb von MODEL_DIR
+   * erreicht werden.
+   * 
+   * @throws IllegalArgumentException Falls der Name ungültig ist.
+   */
+  private Path modelFile(String name) {
+    if (!name.matches("[\\w-]+"))
+      throw new IllegalArgumentException("Ungültiger Modellname: " + name);
+
+    return MODEL_DIR.resolve(name + ".net");
+  }
+
+
+  /**
+   * Speichert das Netz mitsamt der Parameter der Datenaufbereitung (siehe
+   * Checkpoint). Ein laufendes Training wird dafür nicht angehalten:
+   * Gespeichert wird zwischen zwei Epochen, während das Training auf die
+   * Sperre wartet (siehe Training.train()).
+   */
+  private void saveModel(JSONObject json) throws IOException {
+    if (net == null)
+      return;
+
+    Files.createDirectories(MODEL_DIR);
+
+    var checkpoint = new Checkpoint(net, dataHandler.getLogalizer(),
+        dataHandler.getNormalizer(), dataHandler.getOutputValue());
+    var file = modelFile(json.getString("name"));
+    var t = training;
+
+    if (t == null) {
+      checkpoint.write(file);
+      return;
+    }
+
+    synchronized (t) {
+      checkpoint.write(file);
+    }
+  }
+
+
+  /**
+   * Stoppt das Training und lädt ein gespeichertes Netz. Sind in der Datei
+   * die Parameter der Datenaufbereitung enthalten, werden sie übernommen,
+   * damit die Ausgaben des Netzes zu den Daten passen. Sind bereits Daten
+   * vorhanden, muss das Netz so viele Eingaben erwarten, wie sie für seine
+   * Schätzlänge liefern. Andernfalls wird es abgelehnt und das bisherige
+   * Netz bleibt erhalten.
+   * 
+   * @throws IllegalArgumentException Falls das Netz nicht zu den Daten passt.
+   */
+  private void loadModel(JSONObject json) throws IOException {
+    var name = json.getString("name");
+    var checkpoint = Checkpoint.read(modelFile(name));
+    var loaded = checkpoint.getNet();
+    var data = dataHandler.getData();
+
+    if (data != null) {
+      int inputs = loaded.getEstimateLength() * data.keySet().size();
+
+      if (loaded.getStructure().get(0) != inputs)
+        throw new IllegalArgumentException("Das Netz " + name + " erwartet "
+            + loaded.getStructure().get(0) + " Eingaben, die Daten liefern "
+            + inputs);
+    }
+
+    stopTraining();
+    net = loaded;
+    training = null;
+
+    if (checkpoint.getNormalizer() != null)
+      dataHandler.setConverters(checkpoint.getLogalizer(),
+          checkpoint.getNormalizer(), checkpoint.getOutputValue());
+  }
+
+
   private JSONObject bundleNetOutput() throws Exception {
     var data = dataHandler.getData();
     // Die - 1 am Ende braucht man, weil hier die Wachstumsraten ermittelt
@@ -147,9 +350,9 @@ public class ControllerServlet extends HttpServlet {
     var res = new JSONObject();
     res.put("estimateValue", estimateValue);
     res.put("estimateLength", net.getEstimateLength());
-    res.put("currentEpoch",
-        training.getEpoch() / (double) training.getMaxEpochs());
-    res.put("threadAlive", trainingThread.isAlive());
+    res.put("currentEpoch", training == null ? 0
+        : training.getEpoch() / (double) training.getMaxEpochs());
+    res.put("threadAlive", trainingThread != null && trainingThread.isAlive());
 
     return res;
   }
@@ -198,9 +401,7 @@ public class ControllerServlet extends HttpServlet {
       stopTraining();
       break;
     case getData:
-      stopTraining();
-      dataHandler.readData(jsonRequest.getJSONArray("jsonData"),
-          jsonRequest.getString("outputValue"));
+      readData(jsonRequest);
       break;
     case sendTrainingOutput:
       try {
@@ -209,6 +410,20 @@ public class ControllerServlet extends HttpServlet {
         e.printStackTrace();
       }
       break;
+    case saveModel:
+      try {
+        saveModel(jsonRequest);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      break;
+    case loadModel:
+      try {
+        loadModel(jsonRequest);
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      break;
     }
   }
 
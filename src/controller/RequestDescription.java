@@ -20,5 +20,15 @@ public enum RequestDescription {
   /**
    * Befehl, um die Netzausgabe zu senden.
    */
-  sendTrainingOutput;
+  sendTrainingOutput,
+
+  /**
+   * Befehl, um das Netz samt der Datenaufbereitung zu speichern.
+   */
+  saveModel,
+
+  /**
+   * Befehl, um ein gespeichertes Netz zu laden.
+   */
+  loadModel;
 }
@@ -66,14 +66,58 @@ public class DataHandler {
     data = new Chart();
     this.outputValue = outputValue;
 
+    addPoints(jsonData);
+
+    // Erstaunlich: Was hier herauskommt, sind ann�hernd normalverteilte Daten!
+    logalizer = new Logalizer(data);
+
+    // Der Normalizer �bernimmt die Standardabweichung und den Erwartungswert.
+    normalizer = new Normalizer(logalizer.convertChart(data));
+  }
+
+
+  /**
+   * Hängt neue Datenpunkte an den Datensatz an, etwa den Wert eines neuen
+   * Tages. Logalizer und Normalizer bleiben dabei unverändert, damit die
+   * bisherigen Trainingsmuster und ein darauf trainiertes Netz weiter zu den
+   * Daten passen (siehe getTrainingPatterns(int, DataPattern[])). Gibt es
+   * noch keine Converter oder soll ein anderer Wert geschätzt werden, wird
+   * nichts angehängt.
+   * 
+   * @param jsonData    Die neuen Datenpunkte.
+   * @param outputValue Die Bezeichnung des Wertes, der geschätzt werden soll.
+   * @return true, falls die Datenpunkte angehängt wurden.
+   */
+  public boolean appendData(JSONArray jsonData, String outputValue) {
+    if (normalizer == null || !outputValue.equals(this.outputValue))
+      return false;
+
+    if (data == null)
+      data = new Chart();
+
+    addPoints(jsonData);
+    return true;
+  }
+
+
+  /**
+   * Überträgt Datenpunkte im JSON-Format in den Datensatz. Verwendet werden
+   * die Keys des ersten bereits vorhandenen bzw. neuen Punktes.
+   * 
+   * @param jsonData Die Datenpunkte.
+   */
+  private void addPoints(JSONArray jsonData) {
     var keyList = new ArrayList<String>();
 
+    if (data.size() > 0)
+      keyList.addAll(data.keySet());
+
     for (int i = 0; i < jsonData.length(); i++) {
       var jsonPoint = jsonData.getJSONObject(i);
       var chartPoint = new ChartPoint();
 
       // Lege die Reihenfolge der Keys fest.
-      if (i == 0) {
+      if (keyList.isEmpty()) {
         for (var key : jsonPoint.keySet())
           keyList.add(key);
       }
@@ -83,12 +127,6 @@ public class DataHandler {
 
       data.add(chartPoint);
     }
-
-    // Erstaunlich: Was hier herauskommt, sind ann�hernd normalverteilte Daten!
-    logalizer = new Logalizer(data);
-
-    // Der Normalizer �bernimmt die Standardabweichung und den Erwartungswert.
-    normalizer = new Normalizer(logalizer.convertChart(data));
   }
 
 
@@ -102,11 +140,44 @@ public class DataHandler {
    * @return Eine Liste von Trainingsmustern f�r das neuronale Netz.
    */
   public DataPattern[] getTrainingPatterns(int estimateLength) {
+    return getTrainingPatterns(estimateLength, null);
+  }
+
+
+  /**
+   * Wie getTrainingPatterns(int), übernimmt aber die Ein- und Ausgabevektoren
+   * der bisherigen Trainingsmuster, nachdem Daten angehängt wurden (siehe
+   * appendData). Umgerechnet werden also nur die Muster der neuen
+   * Datenpunkte. Die bisherigen Muster müssen mit derselben Länge und
+   * denselben Convertern erzeugt worden sein.
+   * 
+   * Da die jüngsten Muster stärker gewichtet werden, ändern sich beim Anhängen
+   * die Prioritäten der bisher letzten Muster. Sie werden deshalb bei Bedarf
+   * mit den alten Vektoren neu angelegt.
+   * 
+   * @param estimateLength Die Eingabelänge des Musters.
+   * @param previous       Die bisherigen Trainingsmuster oder null.
+   * @return Eine Liste von Trainingsmustern für das neuronale Netz.
+   */
+  public DataPattern[] getTrainingPatterns(int estimateLength,
+      DataPattern previous[]) {
     int patternLength = 2 * estimateLength;
     int numberPatterns = data.size() - patternLength;
+    int reused = previous == null ? 0
+        : Math.min(previous.length, numberPatterns);
     DataPattern patterns[] = new DataPattern[numberPatterns];
 
-    for (int i = 0; i < numberPatterns; i++) {
+    for (int i = 0; i < reused; i++) {
+      int priority = priority(estimateLength, numberPatterns, i);
+
+      if (previous[i].getPriority() == priority)
+        patterns[i] = previous[i];
+      else
+        patterns[i] = new DataPattern(previous[i].getInput(),
+            previous[i].getOutput(), priority);
+    }
+
+    for (int i = reused; i < numberPatterns; i++) {
       // Ein Ausschnitt aus den Gesamtdaten
       var segment = data.subChart(i, i + patternLength + 1);
 
@@ -117,13 +188,27 @@ public class DataHandler {
           segment.subChart(estimateLength + 1), segment.get(estimateLength));
 
       patterns[i] = new DataPattern(input, output,
-          Math.max(1, 2 * estimateLength / (numberPatterns - i)));
+          priority(estimateLength, numberPatterns, i));
     }
 
     return patterns;
   }
 
 
+  /**
+   * Die Priorität eines Trainingsmusters. Die jüngsten Muster werden stärker
+   * gewichtet.
+   * 
+   * @param estimateLength Die Eingabelänge des Musters.
+   * @param numberPatterns Die Anzahl aller Muster.
+   * @param i              Der Index des Musters.
+   * @return Die Priorität des Musters.
+   */
+  private static int priority(int estimateLength, int numberPatterns, int i) {
+    return Math.max(1, 2 * estimateLength / (numberPatterns - i));
+  }
+
+
   public double makeOutputHumanReadable(Vektor netOut, ChartPoint lastInput) {
     double estimateValue = netOut.get(0);
 
@@ -169,4 +254,31 @@ public class DataHandler {
   public String getOutputValue() {
     return outputValue;
   }
+
+
+  public Logalizer getLogalizer() {
+    return logalizer;
+  }
+
+
+  public Normalizer getNormalizer() {
+    return normalizer;
+  }
+
+
+  /**
+   * Setzt die Converter und den zu schätzenden Wert, etwa aus einem
+   * gespeicherten Modell (siehe net.Checkpoint). So passen die Ein- und
+   * Ausgaben des Netzes wieder zu den Daten, mit denen es trainiert wurde.
+   * 
+   * @param logalizer   Der Logalizer.
+   * @param normalizer  Der Normalizer.
+   * @param outputValue Die Bezeichnung des Wertes, der geschätzt werden soll.
+   */
+  public void setConverters(Logalizer logalizer, Normalizer normalizer,
+      String outputValue) {
+    this.logalizer = logalizer;
+    this.normalizer = normalizer;
+    this.outputValue = outputValue;
+  }
 }
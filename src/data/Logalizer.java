@@ -24,6 +24,25 @@ public class Logalizer implements BinaryConverter {
   }
 
 
+  /**
+   * Erstellt einen Logalizer mit einem bereits bekannten Anfangswert, etwa aus
+   * einem gespeicherten Modell (siehe net.Checkpoint).
+   * 
+   * @param startValue Der originale Anfangswert der Liste.
+   */
+  public Logalizer(ChartPoint startValue) {
+    this.startValue = startValue;
+  }
+
+
+  /**
+   * @return Der originale Anfangswert der Liste.
+   */
+  public ChartPoint getStartValue() {
+    return startValue;
+  }
+
+
   /**
    * Implementiert die Funktion (a, b) -> Math.log(b / a).
    */
@@ -40,6 +40,35 @@ public class Normalizer implements UnaryConverter {
   }
 
 
+  /**
+   * Erstellt einen Normalizer mit bereits bekannten Parametern, etwa aus
+   * einem gespeicherten Modell (siehe net.Checkpoint).
+   * 
+   * @param expectedValue     Der Erwartungswert der Daten.
+   * @param standardDeviation Die Standardabweichung der Daten.
+   */
+  public Normalizer(double expectedValue, double standardDeviation) {
+    this.expectedValue = expectedValue;
+    this.standardDeviation = standardDeviation;
+  }
+
+
+  /**
+   * @return Der Erwartungswert der Daten.
+   */
+  public double getExpectedValue() {
+    return expectedValue;
+  }
+
+
+  /**
+   * @return Die Standardabweichung der Daten vom Erwartungswert.
+   */
+  public double getStandardDeviation() {
+    return standardDeviation;
+  }
+
+
   @Override
   public Chart convertChart(Chart original) {
     return original.apply(this::convert);
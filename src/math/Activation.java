@@ -0,0 +1,117 @@
+package math;
+
+import java.util.Locale;
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Die Aktivierungsfunktion der Neuronen eines Layers. Sie wird beim Eingeben
+ * auf die gewichtete Summe jedes Neurons angewendet (siehe
+ * LinearAlgebraBackend.affineInto). Fr das Training wird auerdem ihre
+ * Ableitung bentigt. Diese lsst sich bei allen Funktionen hier allein aus
+ * dem Ausgabewert berechnen, die gewichtete Summe muss also nicht
+ * aufgehoben werden.
+ *
+ * @author Roland Vlker
+ */
+public interface Activation extends DoubleUnaryOperator {
+
+  /**
+   * Die Sigmoid-Funktion 1 / (1 + exp(-x)) mit Werten zwischen 0 und 1 (siehe
+   * Sigmoid fr schnellere Nherungen).
+   */
+  Activation SIGMOID = Sigmoid.EXACT;
+
+  /**
+   * Der Tangens hyperbolicus mit Werten zwischen -1 und 1.
+   */
+  Activation TANH = StandardActivation.TANH;
+
+  /**
+   * Die Funktion max(0, x) (rectified linear unit). Sie kommt ohne Math.exp
+   * aus.
+   */
+  Activation RELU = StandardActivation.RELU;
+
+  /**
+   * Wie RELU, allerdings mit der Steigung 0.01 fr negative Werte, sodass
+   * auch inaktive Neuronen einen Gradienten erhalten.
+   */
+  Activation LEAKY_RELU = StandardActivation.LEAKY_RELU;
+
+  /**
+   * Die Identitt, etwa fr einen Outputlayer ohne Wertebereichsgrenzen.
+   */
+  Activation LINEAR = StandardActivation.LINEAR;
+
+
+  /**
+   * Der Name der Aktivierungsfunktion, unter dem sie auch ber forName gewhlt
+   * werden kann.
+   *
+   * @return Der Name der Aktivierungsfunktion.
+   */
+  String getName();
+
+
+  /**
+   * Berechnet die Ableitung der Funktion an der Stelle x aus dem Funktionswert
+   * y = f(x).
+   *
+   * @param y Der Funktionswert.
+   * @return Die Ableitung an der Stelle x.
+   */
+  double derivative(double y);
+
+
+  /**
+   * Multipliziert einen Abschnitt zurckgefhrter Fehler komponentenweise mit
+   * der Ableitung an den zugehrigen Funktionswerten: out = g * f'(x). Das ist
+   * der Kern der Fehlerrckbertragung durch einen Layer. out darf dasselbe
+   * Array wie g sein.
+   *
+   * Bewusst keine default-Methode: Sonst wrde Sigmoid beim Laden zuerst
+   * dieses Interface initialisieren, bevor Sigmoid.EXACT gesetzt ist, und
+   * SIGMOID bliebe null.
+   *
+   * @param y      Die Funktionswerte.
+   * @param yOff   Der Beginn des Abschnitts in y.
+   * @param g      Die zurckgefhrten Fehler.
+   * @param gOff   Der Beginn des Abschnitts in g.
+   * @param out    Das Array, das die Ergebnisse aufnimmt.
+   * @param outOff Der Beginn des Abschnitts in out.
+   * @param n      Die Lnge der Abschnitte.
+   */
+  void derivativeInto(double y[], int yOff, double g[], int gOff,
+      double out[], int outOff, int n);
+
+
+  /**
+   * Whlt eine Aktivierungsfunktion ber ihren Namen aus, wie er etwa in der
+   * Struktur des Netzes angegeben wird: "sigmoid", "tanh", "relu", "leaky"
+   * (bzw. "leaky_relu") oder "linear". Gro- und Kleinschreibung spielen
+   * unabhngig von der eingestellten Sprache keine Rolle.
+   *
+   * @param name Der Name der Aktivierungsfunktion.
+   * @return Die Aktivierungsfunktion.
+   * @throws IllegalArgumentException Falls der Name unbekannt ist.
+   */
+  static Activation forName(String name) {
+    switch (name.toLowerCase(Locale.ROOT)) {
+    case "sigmoid":
+      return SIGMOID;
+    case "tanh":
+      return TANH;
+    case "relu":
+      return RELU;
+    case "leaky":
+    case "leaky_relu":
+      return LEAKY_RELU;
+    case "linear":
+      return LINEAR;
+    default:
+      throw new IllegalArgumentException(
+          "Unbekannte Aktivierungsfunktion: " + name);
+    }
+  }
+}
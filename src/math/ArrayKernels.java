@@ -0,0 +1,86 @@
+package math;
+
+/**
+ * Die innersten Rechenschleifen auf Abschnitten von double-Arrays, ber die
+ * Kernels die Vektor- und Matrix-Operationen rechnet. ScalarKernels enthlt
+ * die gewhnlichen Schleifen, SimdKernels (im Quellverzeichnis src-vector)
+ * rechnet mit der Vector API des JDK. Welche der beiden verwendet wird,
+ * entscheidet Kernels beim Laden.
+ *
+ * Alle Methoden erlauben, dass das Ziel eines der Quell-Arrays ist, sofern
+ * die Abschnitte an derselben Stelle beginnen.
+ *
+ * @author Roland Vlker
+ */
+interface ArrayKernels {
+
+  /**
+   * Berechnet das Skalarprodukt zweier Abschnitte der Lnge n.
+   *
+   * @param x    Das erste Array.
+   * @param xOff Der Beginn des Abschnitts im ersten Array.
+   * @param y    Das zweite Array.
+   * @param yOff Der Beginn des Abschnitts im zweiten Array.
+   * @param n    Die Lnge der Abschnitte.
+   * @return Das Skalarprodukt.
+   */
+  double dot(double x[], int xOff, double y[], int yOff, int n);
+
+
+  /**
+   * Addiert das alpha-fache eines Abschnitts auf einen anderen: y += alpha *
+   * x.
+   *
+   * @param alpha Der Faktor.
+   * @param x     Das Array mit den Summanden.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Array, auf das addiert wird.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  void axpy(double alpha, double x[], int xOff, double y[], int yOff, int n);
+
+
+  /**
+   * Schreibt das alpha-fache eines Abschnitts in einen anderen: y = alpha *
+   * x.
+   *
+   * @param alpha Der Faktor.
+   * @param x     Das Quell-Array.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Ziel-Array.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  void scale(double alpha, double x[], int xOff, double y[], int yOff, int n);
+
+
+  /**
+   * Addiert zwei Abschnitte komponentenweise: out = x + y.
+   *
+   * @param x      Das Array mit den linken Summanden.
+   * @param xOff   Der Beginn des Abschnitts in x.
+   * @param y      Das Array mit den rechten Summanden.
+   * @param yOff   Der Beginn des Abschnitts in y.
+   * @param out    Das Array, das die Ergebnisse aufnimmt.
+   * @param outOff Der Beginn des Abschnitts in out.
+   * @param n      Die Lnge der Abschnitte.
+   */
+  void add(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n);
+
+
+  /**
+   * Multipliziert zwei Abschnitte komponentenweise: out = x * y.
+   *
+   * @param x      Das Array mit den linken Faktoren.
+   * @param xOff   Der Beginn des Abschnitts in x.
+   * @param y      Das Array mit den rechten Faktoren.
+   * @param yOff   Der Beginn des Abschnitts in y.
+   * @param out    Das Array, das die Ergebnisse aufnimmt.
+   * @param outOff Der Beginn des Abschnitts in out.
+   * @param n      Die Lnge der Abschnitte.
+   */
+  void mult(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n);
+}
@@ -0,0 +1,108 @@
+package math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * Legt fest, ob die Matrix-Operationen auf einem oder auf mehreren Kernen
+ * ausgefhrt werden. Im parallelen Modus wird die Arbeit reihenweise auf den
+ * gemeinsamen ForkJoinPool verteilt, sofern sie gro genug ist. Da jeder
+ * Ergebniswert vollstndig von genau einem Thread berechnet wird, sind die
+ * Ergebnisse in beiden Modi identisch.
+ * 
+ * @author Roland Vlker
+ */
+public enum Execution {
+
+  /**
+   * Alle Berechnungen laufen im aufrufenden Thread.
+   */
+  SEQUENTIAL,
+
+  /**
+   * Groe Berechnungen werden in Reihenblcke aufgeteilt und parallel
+   * ausgefhrt.
+   */
+  PARALLEL;
+
+  /**
+   * Die Anzahl an Multiplikationen, ab der sich das Aufteilen einer
+   * Berechnung lohnt. Darunter berwiegen die Kosten der Verteilung.
+   */
+  static final long THRESHOLD = 1 << 15;
+
+  /**
+   * Ob berhaupt mehrere Kerne zur Verfgung stehen. Auf einem einzelnen Kern
+   * wrde das Aufteilen nur Verwaltungsaufwand erzeugen.
+   */
+  private static final boolean MULTI_CORE = Runtime.getRuntime()
+      .availableProcessors() > 1;
+
+
+  /**
+   * Eine Berechnung ber einen Bereich von Reihen [from, to).
+   */
+  @FunctionalInterface
+  interface RowRange {
+
+    void compute(int from, int to);
+  }
+
+
+  /**
+   * Fhrt eine Berechnung fr alle Reihen aus, im parallelen Modus aufgeteilt
+   * in Reihenblcke.
+   * 
+   * @param rows       Die Anzahl der Reihen.
+   * @param workPerRow Die Anzahl der Multiplikationen pro Reihe.
+   * @param body       Die Berechnung fr einen Reihenbereich.
+   */
+  void forRows(int rows, long workPerRow, RowRange body) {
+    if (this == SEQUENTIAL || !MULTI_CORE || rows < 2
+        || rows * workPerRow < THRESHOLD)
+      body.compute(0, rows);
+    else
+      ForkJoinPool.commonPool()
+          .invoke(new RowTask(0, rows, Math.max(1, workPerRow), body));
+  }
+
+
+  /**
+   * Teilt einen Reihenbereich so lange in zwei Hlften, bis die Arbeit eines
+   * Teils unter dem Schwellwert liegt.
+   */
+  private static class RowTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+
+    private final int to;
+
+    private final long workPerRow;
+
+    private final RowRange body;
+
+
+    RowTask(int from, int to, long workPerRow, RowRange body) {
+      this.from = from;
+      this.to = to;
+      this.workPerRow = workPerRow;
+      this.body = body;
+    }
+
+
+    @Override
+    protected void compute() {
+      if (to - from < 2 || (to - from) * workPerRow < THRESHOLD) {
+        body.compute(from, to);
+        return;
+      }
+
+      int mid = (from + to) >>> 1;
+      invokeAll(new RowTask(from, mid, workPerRow, body),
+          new RowTask(mid, to, workPerRow, body));
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package math;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Eine Matrix, deren Werte in einfacher Genauigkeit (float) gespeichert
+ * werden. Sie belegt nur halb so viel Speicher wie eine gewhnliche Matrix,
+ * sodass bei der Multiplikation mit einem Vektor nur halb so viele Daten aus
+ * dem Speicher gelesen werden mssen. Gerechnet wird weiterhin in doppelter
+ * Genauigkeit, nur beim Speichern werden die Werte gerundet.
+ * 
+ * @author Roland Vlker
+ */
+public class FloatMatrix extends Matrix {
+
+  /**
+   * Die Werte der Matrix, zeilenweise hintereinander.
+   */
+  private final float data[];
+
+
+  /**
+   * Erstellt eine Matrix der angegebenen Gre und fllt sie mit Nullen.
+   * 
+   * @param n Anzahl der Reihen.
+   * @param m Anzahl der Spalten.
+   */
+  public FloatMatrix(int n, int m) {
+    super(n, m, null);
+    data = new float[n * m];
+  }
+
+
+  /**
+   * Kopiert die Werte einer Matrix und rundet sie dabei auf einfache
+   * Genauigkeit.
+   * 
+   * @param mat Die zu kopierende Matrix.
+   */
+  public FloatMatrix(Matrix mat) {
+    this(mat.getRows(), mat.getCols());
+
+    for (int i = 0; i < getRows(); i++) {
+      for (int j = 0; j < getCols(); j++)
+        set(i, j, mat.get(i, j));
+    }
+  }
+
+
+  @Override
+  public Matrix copy() {
+    FloatMatrix res = new FloatMatrix(getRows(), getCols());
+    System.arraycopy(data, 0, res.data, 0, data.length);
+
+    return res;
+  }
+
+
+  /**
+   * Kopiert die Werte in eine andere FloatMatrix direkt, ohne sie einzeln
+   * umzuwandeln.
+   */
+  @Override
+  public Matrix copyInto(Matrix out) throws Exception {
+    if (!(out instanceof FloatMatrix))
+      return super.copyInto(out);
+
+    if (getRows() != out.getRows() || getCols() != out.getCols())
+      throw new Exception("Dimension Error");
+
+    System.arraycopy(data, 0, ((FloatMatrix) out).data, 0, data.length);
+    return out;
+  }
+
+
+  @Override
+  public double get(int i, int j) {
+    return data[i * getCols() + j];
+  }
+
+
+  @Override
+  public void set(int i, int j, double d) {
+    data[i * getCols() + j] = (float) d;
+  }
+
+
+  @Override
+  public void fill(double d) {
+    Arrays.fill(data, (float) d);
+  }
+
+
+  @Override
+  public Matrix add(Matrix mat) throws Exception {
+    if (getRows() != mat.getRows() || getCols() != mat.getCols())
+      throw new Exception("Dimension Error");
+
+    final int m = getCols();
+
+    for (int i = 0; i < getRows(); i++) {
+      for (int j = 0; j < m; j++)
+        data[i * m + j] += mat.get(i, j);
+    }
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix mult(double lambda) {
+    for (int i = 0; i < data.length; i++)
+      data[i] *= lambda;
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix applyInPlace(DoubleUnaryOperator f) {
+    for (int i = 0; i < data.length; i++)
+      data[i] = (float) f.applyAsDouble(data[i]);
+
+    return this;
+  }
+
+
+  @Override
+  public Vektor multInto(Vektor v, Vektor out, Execution mode)
+      throws Exception {
+    if (getCols() != v.getLength() || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int m = getCols();
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), m, (from, to) -> {
+      for (int i = from; i < to; i++)
+        y[i] = Kernels.dot(data, i * m, x, 0, m);
+    });
+
+    return out;
+  }
+
+
+  @Override
+  void addWeightedRows(double x[], double y[], int from, int to) {
+    final int m = getCols();
+
+    for (int i = 0; i < getRows(); i++)
+      Kernels.axpy(x[i], data, i * m + from, y, from, to - from);
+  }
+
+
+  @Override
+  public Vektor affineInto(Vektor v, DoubleUnaryOperator f, Vektor out,
+      Execution mode) throws Exception {
+    if (getCols() != v.getLength() + 1 || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int m = getCols();
+    final int n = m - 1;
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), m, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int offset = i * m;
+        double sum = Kernels.dot(data, offset, x, 0, n) + data[offset + n];
+
+        y[i] = f.applyAsDouble(sum);
+      }
+    });
+
+    return out;
+  }
+}
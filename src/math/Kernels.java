@@ -0,0 +1,284 @@
+package math;
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * Bndelt die innersten Rechenschleifen der Vektor- und Matrix-Operationen.
+ * 
+ * Die Schleifen auf double-Arrays rechnet eine Implementierung von
+ * ArrayKernels. Ist die Klasse SimdKernels vorhanden und das Modul
+ * jdk.incubator.vector geladen, wird sie verwendet, sonst ScalarKernels.
+ * SimdKernels liegt im eigenen Quellverzeichnis src-vector, weil sie nur mit
+ * diesem Modul kompiliert werden kann:
+ * 
+ * <pre>
+ * javac --add-modules jdk.incubator.vector -cp classes -d classes \
+ *     src-vector/math/*.java
+ * java --add-modules jdk.incubator.vector ...
+ * </pre>
+ * 
+ * Mit der Systemeigenschaft "math.simd=false" bleibt es bei ScalarKernels.
+ * SimdKernels summiert in mehreren Teilsummen, Skalarprodukte knnen sich
+ * daher in den letzten Stellen von denen der Schleifen unterscheiden. Alle
+ * anderen Rechenkerne liefern in beiden Implementierungen dieselben Werte.
+ * 
+ * @author Roland Vlker
+ */
+final class Kernels {
+
+  /**
+   * Die Implementierung der Rechenkerne auf double-Arrays.
+   */
+  static final ArrayKernels ARRAYS = load();
+
+
+  private Kernels() {
+  }
+
+
+  /**
+   * Whlt die Implementierung der Rechenkerne auf double-Arrays. Die Klasse
+   * SimdKernels wird per Reflection geladen, damit dieser Code auch ohne sie
+   * und ohne das Modul jdk.incubator.vector kompiliert und luft.
+   * 
+   * @return SimdKernels, falls verfgbar, sonst ScalarKernels.
+   */
+  private static ArrayKernels load() {
+    if (!Boolean.parseBoolean(System.getProperty("math.simd", "true")))
+      return new ScalarKernels();
+
+    try {
+      return (ArrayKernels) Class.forName("math.SimdKernels")
+          .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // Nicht mitkompiliert oder das Modul ist nicht geladen
+      return new ScalarKernels();
+    }
+  }
+
+
+  /**
+   * Berechnet das Skalarprodukt zweier Abschnitte der Lnge n.
+   * 
+   * @param x    Das erste Array.
+   * @param xOff Der Beginn des Abschnitts im ersten Array.
+   * @param y    Das zweite Array.
+   * @param yOff Der Beginn des Abschnitts im zweiten Array.
+   * @param n    Die Lnge der Abschnitte.
+   * @return Das Skalarprodukt.
+   */
+  static double dot(double x[], int xOff, double y[], int yOff, int n) {
+    return ARRAYS.dot(x, xOff, y, yOff, n);
+  }
+
+
+  /**
+   * Berechnet das Skalarprodukt eines float-Abschnitts mit einem
+   * double-Abschnitt der Lnge n. Gerechnet wird in doppelter Genauigkeit.
+   * 
+   * @param x    Das float-Array.
+   * @param xOff Der Beginn des Abschnitts in x.
+   * @param y    Das double-Array.
+   * @param yOff Der Beginn des Abschnitts in y.
+   * @param n    Die Lnge der Abschnitte.
+   * @return Das Skalarprodukt.
+   */
+  static double dot(float x[], int xOff, double y[], int yOff, int n) {
+    double sum = 0;
+
+    for (int i = 0; i < n; i++)
+      sum += x[xOff + i] * y[yOff + i];
+
+    return sum;
+  }
+
+
+  /**
+   * Berechnet das Skalarprodukt eines Abschnitts aus einem DoubleBuffer mit
+   * einem Abschnitt aus einem double-Array der Lnge n (siehe
+   * OffHeapMatrix).
+   * 
+   * @param x    Der Puffer.
+   * @param xOff Der Beginn des Abschnitts in x.
+   * @param y    Das double-Array.
+   * @param yOff Der Beginn des Abschnitts in y.
+   * @param n    Die Lnge der Abschnitte.
+   * @return Das Skalarprodukt.
+   */
+  static double dot(DoubleBuffer x, int xOff, double y[], int yOff, int n) {
+    double sum = 0;
+
+    for (int i = 0; i < n; i++)
+      sum += x.get(xOff + i) * y[yOff + i];
+
+    return sum;
+  }
+
+
+  /**
+   * Berechnet die vier Skalarprodukte zweier Abschnitte aus w mit zwei
+   * Abschnitten aus x, alle der Lnge n. Jeder geladene Wert geht so in zwei
+   * Produkte ein, statt nur in eines wie bei dot.
+   * 
+   * @param w   Das erste Array.
+   * @param w0  Der Beginn des ersten Abschnitts in w.
+   * @param w1  Der Beginn des zweiten Abschnitts in w.
+   * @param x   Das zweite Array.
+   * @param x0  Der Beginn des ersten Abschnitts in x.
+   * @param x1  Der Beginn des zweiten Abschnitts in x.
+   * @param n   Die Lnge der Abschnitte.
+   * @param res Nimmt die Ergebnisse (w0, x0), (w0, x1), (w1, x0) und (w1, x1)
+   *            auf.
+   */
+  static void dot2x2(double w[], int w0, int w1, double x[], int x0, int x1,
+      int n, double res[]) {
+    double s00 = 0;
+    double s01 = 0;
+    double s10 = 0;
+    double s11 = 0;
+
+    for (int k = 0; k < n; k++) {
+      double a0 = w[w0 + k];
+      double a1 = w[w1 + k];
+      double b0 = x[x0 + k];
+      double b1 = x[x1 + k];
+
+      s00 += a0 * b0;
+      s01 += a0 * b1;
+      s10 += a1 * b0;
+      s11 += a1 * b1;
+    }
+
+    res[0] = s00;
+    res[1] = s01;
+    res[2] = s10;
+    res[3] = s11;
+  }
+
+
+  /**
+   * Addiert das alpha-fache eines Abschnitts auf einen anderen: y += alpha *
+   * x.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Das Array mit den Summanden.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Array, auf das addiert wird.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  static void axpy(double alpha, double x[], int xOff, double y[], int yOff,
+      int n) {
+    ARRAYS.axpy(alpha, x, xOff, y, yOff, n);
+  }
+
+
+  /**
+   * Addiert das alpha-fache eines float-Abschnitts auf einen
+   * double-Abschnitt: y += alpha * x.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Das float-Array mit den Summanden.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Array, auf das addiert wird.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  static void axpy(double alpha, float x[], int xOff, double y[], int yOff,
+      int n) {
+    for (int i = 0; i < n; i++)
+      y[yOff + i] += alpha * x[xOff + i];
+  }
+
+
+  /**
+   * Addiert das alpha-fache eines Abschnitts aus einem DoubleBuffer auf einen
+   * double-Abschnitt: y += alpha * x.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Der Puffer mit den Summanden.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Array, auf das addiert wird.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  static void axpy(double alpha, DoubleBuffer x, int xOff, double y[],
+      int yOff, int n) {
+    for (int i = 0; i < n; i++)
+      y[yOff + i] += alpha * x.get(xOff + i);
+  }
+
+
+  /**
+   * Addiert zwei Vielfache von Abschnitten aus x nacheinander auf einen
+   * Abschnitt aus y: y += a0 * x[x0..] + a1 * x[x1..]. Die Eintrge von y
+   * werden dabei nur einmal geladen und gespeichert. Die Summanden werden in
+   * derselben Reihenfolge addiert wie bei zwei Aufrufen von axpy.
+   * 
+   * @param a0   Der Faktor des ersten Abschnitts.
+   * @param a1   Der Faktor des zweiten Abschnitts.
+   * @param x    Das Array mit den Summanden.
+   * @param x0   Der Beginn des ersten Abschnitts in x.
+   * @param x1   Der Beginn des zweiten Abschnitts in x.
+   * @param y    Das Array, auf das addiert wird.
+   * @param yOff Der Beginn des Abschnitts in y.
+   * @param n    Die Lnge der Abschnitte.
+   */
+  static void axpy2(double a0, double a1, double x[], int x0, int x1,
+      double y[], int yOff, int n) {
+    for (int i = 0; i < n; i++)
+      y[yOff + i] = y[yOff + i] + a0 * x[x0 + i] + a1 * x[x1 + i];
+  }
+
+
+  /**
+   * Schreibt das alpha-fache eines Abschnitts in einen anderen: y = alpha *
+   * x.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Das Quell-Array.
+   * @param xOff  Der Beginn des Abschnitts in x.
+   * @param y     Das Ziel-Array.
+   * @param yOff  Der Beginn des Abschnitts in y.
+   * @param n     Die Lnge der Abschnitte.
+   */
+  static void scale(double alpha, double x[], int xOff, double y[], int yOff,
+      int n) {
+    ARRAYS.scale(alpha, x, xOff, y, yOff, n);
+  }
+
+
+  /**
+   * Addiert zwei Abschnitte komponentenweise: out = x + y.
+   * 
+   * @param x      Das Array mit den linken Summanden.
+   * @param xOff   Der Beginn des Abschnitts in x.
+   * @param y      Das Array mit den rechten Summanden.
+   * @param yOff   Der Beginn des Abschnitts in y.
+   * @param out    Das Array, das die Ergebnisse aufnimmt.
+   * @param outOff Der Beginn des Abschnitts in out.
+   * @param n      Die Lnge der Abschnitte.
+   */
+  static void add(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n) {
+    ARRAYS.add(x, xOff, y, yOff, out, outOff, n);
+  }
+
+
+  /**
+   * Multipliziert zwei Abschnitte komponentenweise: out = x * y.
+   * 
+   * @param x      Das Array mit den linken Faktoren.
+   * @param xOff   Der Beginn des Abschnitts in x.
+   * @param y      Das Array mit den rechten Faktoren.
+   * @param yOff   Der Beginn des Abschnitts in y.
+   * @param out    Das Array, das die Ergebnisse aufnimmt.
+   * @param outOff Der Beginn des Abschnitts in out.
+   * @param n      Die Lnge der Abschnitte.
+   */
+  static void mult(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n) {
+    ARRAYS.mult(x, xOff, y, yOff, out, outOff, n);
+  }
+}
@@ -0,0 +1,186 @@
+package math;
+
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Bndelt die Rechenoperationen, die ein neuronales Netz beim Eingeben und
+ * beim Training bentigt. Das Netz ruft diese Operationen nur ber diese
+ * Schnittstelle auf, sodass sich die Implementierung austauschen lsst, ohne
+ * den Code des Netzes zu ndern.
+ *
+ * Es gibt zwei Implementierungen: REFERENCE rechnet geradlinig mit neuen
+ * Vektoren und Matrizen und dient als Vergleichsmastab, OPTIMIZED rechnet
+ * mit den geblockten, parallelisierbaren Kerneln direkt in die Zielobjekte.
+ * Welche verwendet wird, lsst sich pro Netz festlegen; voreingestellt ist die
+ * in der Systemeigenschaft "math.backend" genannte (siehe getDefault).
+ *
+ * Die Implementierungen besitzen keinen eigenen Zustand und drfen daher von
+ * mehreren Netzen gleichzeitig verwendet werden.
+ *
+ * @author Roland Vlker
+ */
+public interface LinearAlgebraBackend {
+
+  /**
+   * Der Name der Systemeigenschaft, ber die die voreingestellte
+   * Implementierung gewhlt wird.
+   */
+  String PROPERTY = "math.backend";
+
+  /**
+   * Die Referenzimplementierung.
+   */
+  LinearAlgebraBackend REFERENCE = new ReferenceBackend();
+
+  /**
+   * Die optimierte Implementierung.
+   */
+  LinearAlgebraBackend OPTIMIZED = new OptimizedBackend();
+
+
+  /**
+   * Der Name der Implementierung, unter dem sie auch ber die
+   * Systemeigenschaft gewhlt werden kann.
+   *
+   * @return Der Name der Implementierung.
+   */
+  String getName();
+
+
+  /**
+   * Berechnet out = f(a * (v, 1)), also das Produkt der Matrix mit dem um eine
+   * 1 erweiterten Vektor, auf dessen Eintrge die Funktion f angewendet wird.
+   * Die letzte Spalte der Matrix wirkt somit als Bias.
+   *
+   * @param a    Die Matrix mit einer Spalte mehr, als v lang ist.
+   * @param v    Der Vektor (ohne Erweiterung).
+   * @param f    Die Funktion, die auf jeden Eintrag angewendet wird.
+   * @param out  Der Vektor, der das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  Vektor affineInto(Matrix a, Vektor v, DoubleUnaryOperator f, Vektor out,
+      Execution mode) throws Exception;
+
+
+  /**
+   * Berechnet out = v * a, also das Produkt eines Zeilenvektors mit der
+   * Matrix.
+   *
+   * @param v    Der Zeilenvektor mit der Lnge der Reihenanzahl.
+   * @param a    Die Matrix.
+   * @param out  Der Vektor, der das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  Vektor multInto(Vektor v, Matrix a, Vektor out, Execution mode)
+      throws Exception;
+
+
+  /**
+   * Addiert das dyadische Produkt von d und dem um eine 1 erweiterten Vektor
+   * x auf die Matrix: a += d * (x, 1)^T. Die letzte Spalte erhlt dabei d
+   * selbst.
+   *
+   * @param a    Die Matrix, auf die addiert wird.
+   * @param d    Der Spaltenvektor mit der Lnge der Reihenanzahl.
+   * @param x    Der Zeilenvektor (ohne Erweiterung).
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  void addAffineOuterProduct(Matrix a, Vektor d, Vektor x, Execution mode)
+      throws Exception;
+
+
+  /**
+   * Die Variante von affineInto fr einen Stapel von Vektoren, die als Reihen
+   * der Matrix x bergeben werden: Die Reihe p von out erhlt f(a * (x_p,
+   * 1)).
+   *
+   * @param a    Die Matrix mit einer Spalte mehr, als x Spalten hat.
+   * @param x    Die Vektoren (ohne Erweiterung) als Reihen.
+   * @param f    Die Funktion, die auf jeden Eintrag angewendet wird.
+   * @param out  Die Matrix, die das Ergebnis aufnimmt (Reihen von x mal
+   *             Reihen von a).
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  Matrix affineInto(Matrix a, Matrix x, DoubleUnaryOperator f, Matrix out,
+      Execution mode) throws Exception;
+
+
+  /**
+   * Berechnet out = a * b fr einen Stapel von Zeilenvektoren, die als Reihen
+   * der Matrix a bergeben werden.
+   *
+   * @param a    Der linke Faktor.
+   * @param b    Der rechte Faktor.
+   * @param out  Die Matrix, die das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  Matrix multInto(Matrix a, Matrix b, Matrix out, Execution mode)
+      throws Exception;
+
+
+  /**
+   * Die Variante von addAffineOuterProduct fr einen Stapel von
+   * Vektorpaaren, die als Reihen der Matrizen d und x bergeben werden: a +=
+   * d^T * (x, 1).
+   *
+   * @param a    Die Matrix, auf die addiert wird.
+   * @param d    Die Spaltenvektoren als Reihen.
+   * @param x    Die Zeilenvektoren (ohne Erweiterung) als Reihen.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt werden darf.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  void addAffineOuterProducts(Matrix a, Matrix d, Matrix x, Execution mode)
+      throws Exception;
+
+
+  /**
+   * Addiert die Schrittweiten mit dem Vorzeichen des Gradienten auf die
+   * Matrix: a(i, j) += steps(i, j) * sgn(g(i, j)).
+   *
+   * @param a     Die Matrix, auf die addiert wird.
+   * @param steps Die Schrittweiten.
+   * @param g     Der Gradient, dessen Vorzeichen die Richtung bestimmt.
+   * @throws Exception Sollten die Dimensionen nicht zueinander passen.
+   */
+  void addSignStep(Matrix a, Matrix steps, Matrix g) throws Exception;
+
+
+  /**
+   * Gibt die Implementierung mit dem angegebenen Namen zurck.
+   *
+   * @param name "reference" oder "optimized".
+   * @return Die Implementierung.
+   * @throws IllegalArgumentException Falls es keine Implementierung mit
+   *                                  diesem Namen gibt.
+   */
+  static LinearAlgebraBackend forName(String name) {
+    for (LinearAlgebraBackend backend : new LinearAlgebraBackend[] {
+        REFERENCE, OPTIMIZED })
+      if (backend.getName().equalsIgnoreCase(name.trim()))
+        return backend;
+
+    throw new IllegalArgumentException("Unbekanntes Backend: " + name);
+  }
+
+
+  /**
+   * Gibt die voreingestellte Implementierung zurck. Diese wird ber die
+   * Systemeigenschaft "math.backend" gewhlt (z.B. -Dmath.backend=reference),
+   * ohne Angabe ist es die optimierte.
+   *
+   * @return Die voreingestellte Implementierung.
+   */
+  static LinearAlgebraBackend getDefault() {
+    return forName(System.getProperty(PROPERTY, OPTIMIZED.getName()));
+  }
+}
@@ -1,5 +1,8 @@
 package math;
 
+import java.util.SplittableRandom;
+
+
 /**
  * Stellt paketbergreifend Funktionen zur Verfgung, die der einfacheren
  * Bedienung in mathematischen Kontexten dienen.
@@ -26,7 +29,8 @@ public class MathHelper {
 
   /**
    * Erstellt eine Matrix der angegebenen Gre mit Zufallswerten im Bereich
-   * (low, high).
+   * (low, high). Jeder Aufruf verwendet einen eigenen Zufallsgenerator, sodass
+   * sich gleichzeitige Aufrufe nicht gegenseitig ausbremsen.
    * 
    * @param n    Anzahl der Reihen.
    * @param m    Anzahl der Spalten.
@@ -35,38 +39,94 @@ public class MathHelper {
    * @return Eine Matrix mit Zufallswerten.
    */
   public static Matrix random(int n, int m, double low, double high) {
+    return random(n, m, low, high, new SplittableRandom(),
+        Execution.PARALLEL);
+  }
+
+
+  /**
+   * Erstellt eine Matrix der angegebenen Gre mit Zufallswerten im Bereich
+   * (low, high) aus dem angegebenen Zufallsgenerator. Fr jede Reihe wird
+   * vorab ein eigener Generator abgespalten, sodass die Reihen parallel
+   * gefllt werden knnen und das Ergebnis dennoch nur vom Zustand des
+   * Generators abhngt. Mit demselben Startwert entsteht also in beiden Modi
+   * dieselbe Matrix.
+   * 
+   * @param n      Anzahl der Reihen.
+   * @param m      Anzahl der Spalten.
+   * @param low    Untere Bereichsgrenze fr die Zufallszahlen.
+   * @param high   Obere Bereichsgrenze fr die Zufallszahlen.
+   * @param random Der Zufallsgenerator.
+   * @param mode   Legt fest, ob die Reihen parallel gefllt werden.
+   * @return Eine Matrix mit Zufallswerten.
+   */
+  public static Matrix random(int n, int m, double low, double high,
+      SplittableRandom random, Execution mode) {
     Matrix res = new Matrix(n, m);
+    double w[] = res.getData();
+    SplittableRandom rows[] = new SplittableRandom[n];
 
-    for (int i = 0; i < n; i++) {
-      for (int j = 0; j < m; j++)
-        res.set(i, j, Math.random() * (high - low) + low);
-    }
+    for (int i = 0; i < n; i++)
+      rows[i] = random.split();
+
+    mode.forRows(n, m, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        for (int j = 0; j < m; j++)
+          w[i * m + j] = rows[i].nextDouble() * (high - low) + low;
+      }
+    });
 
     return res;
   }
 
 
   /**
-   * Orthogonalisiert die Reihen einer Matrix.
+   * Orthogonalisiert die Reihen einer Matrix (siehe orthogonalize(Matrix,
+   * Execution)). Groe Matrizen werden dabei parallel bearbeitet.
    * 
    * @param mat Die Matrix, deren Reihen orthogonalisiert werden sollen.
    * @throws Exception Bei Berechnungsfehlern.
    */
   public static void orthogonalize(Matrix mat) throws Exception {
-    int n = Math.min(mat.getRows(), mat.getCols());
-
-    for (int r = 1; r < n; r++) {
-      Vektor nextCol = mat.extractRow(r);
-
-      for (int i = 0; i < r; i++) {
-        Vektor passed = mat.extractRow(i);
-        double lambda = Vektor.scp(nextCol, passed) / passed.norm2();
+    orthogonalize(mat, Execution.PARALLEL);
+  }
 
-        nextCol.subtract(passed.mult(lambda));
-      }
 
-      mat.setRow(r, nextCol);
+  /**
+   * Orthogonalisiert die Reihen einer Matrix nach dem modifizierten
+   * Gram-Schmidt-Verfahren. Gerechnet wird direkt im Speicher der Matrix
+   * (bei eigener Speicherung auf einer Kopie der Werte), ohne
+   * Zwischenvektoren: Sobald eine Reihe fertig ist, wird ihre Projektion von
+   * allen folgenden Reihen abgezogen. Diese sind voneinander unabhngig und
+   * werden im parallelen Modus auf mehrere Threads verteilt. Jede Reihe
+   * erhlt die Projektionen in derselben Reihenfolge wie im sequentiellen
+   * Modus, die Ergebnisse sind also identisch.
+   * 
+   * @param mat  Die Matrix, deren Reihen orthogonalisiert werden sollen.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @throws Exception Bei Berechnungsfehlern.
+   */
+  public static void orthogonalize(Matrix mat, Execution mode)
+      throws Exception {
+    final int n = Math.min(mat.getRows(), mat.getCols());
+    final int m = mat.getCols();
+    double w[] = Matrix.values(mat);
+
+    for (int i = 0; i < n - 1; i++) {
+      final int passed = i * m;
+      final int first = i + 1;
+      final double norm2 = Kernels.dot(w, passed, w, passed, m);
+
+      mode.forRows(n - first, m, (from, to) -> {
+        for (int r = first + from; r < first + to; r++) {
+          double lambda = Kernels.dot(w, r * m, w, passed, m) / norm2;
+
+          Kernels.axpy(-lambda, w, passed, w, r * m, m);
+        }
+      });
     }
+
+    Matrix.writeBack(mat, w);
   }
 
 
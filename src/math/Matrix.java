@@ -1,29 +1,57 @@
 package math;
 
-import java.util.function.Function;
+import java.util.Arrays;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 
 /**
  * Implementiert eine reellwertige Matrix im klassischen mathematischen Sinne.
  * 
+ * Die Werte liegen gewhnlich in einem flachen double-Array. Unterklassen
+ * knnen sie auch anders speichern (siehe FloatMatrix). Solche Unterklassen
+ * berschreiben get, set und fill sowie die Operationen, die sie schnell
+ * ausfhren wollen. Alle brigen Operationen rechnen auf einer Kopie der
+ * Werte, die sie ber get lesen, und schreiben Ergebnisse ber set zurck.
+ * 
  * @author Roland Vlker.
  */
 public class Matrix {
 
   /**
-   * Die Werte der Matrix
+   * Die Kantenlnge der Blcke bei der Matrix-Multiplikation. Ein Block der
+   * rechten Matrix (BLOCK x BLOCK Werte) passt so vollstndig in den Cache.
    */
-  public double data[][];
+  private static final int BLOCK = 64;
 
+  /**
+   * Die Werte der Matrix, zeilenweise hintereinander in einem einzigen Array
+   * abgelegt. Der Eintrag (i, j) liegt an der Stelle {@code i * cols + j}.
+   */
+  private double data[];
 
   /**
-   * Erstellt eine Matrix mit den angegebenen Werten. Achtung: Die Werte werden
-   * flach kopiert.
+   * Die Anzahl der Reihen.
+   */
+  private int rows;
+
+  /**
+   * Die Anzahl der Spalten.
+   */
+  private int cols;
+
+
+  /**
+   * Erstellt eine Matrix mit den angegebenen Werten. Die Werte werden in den
+   * zusammenhngenden Speicher der Matrix kopiert.
    * 
    * @param data Die Werte der Matrix.
    */
   public Matrix(double data[][]) {
-    this.data = data;
+    this(data.length, data[0].length);
+
+    for (int i = 0; i < rows; i++)
+      System.arraycopy(data[i], 0, this.data, i * cols, cols);
   }
 
 
@@ -35,7 +63,9 @@ public class Matrix {
    * @param fill Der Wert, den jeder Eintrag der Matrix bekommt.
    */
   public Matrix(int n, int m, double fill) {
-    this.data = new double[n][m];
+    this.data = new double[n * m];
+    this.rows = n;
+    this.cols = m;
     this.fill(fill);
   }
 
@@ -57,15 +87,28 @@ public class Matrix {
    * @param mat Die zu kopierende Matrix.
    */
   public Matrix(Matrix mat) {
-    int n = mat.getRows();
-    int m = mat.getCols();
+    this.rows = mat.getRows();
+    this.cols = mat.getCols();
+    this.data = mat.data != null ? mat.data.clone() : values(mat);
+  }
 
-    this.data = new double[n][m];
 
-    for (int i = 0; i < n; i++) {
-      for (int j = 0; j < m; j++)
-        this.data[i][j] = mat.get(i, j);
-    }
+  /**
+   * Erstellt eine Matrix der angegebenen Gre, die das bergebene Array
+   * direkt (ohne Kopie) als Speicher verwendet. Unterklassen, die ihre Werte
+   * anders speichern, bergeben hier null.
+   * 
+   * @param n    Anzahl der Reihen.
+   * @param m    Anzahl der Spalten.
+   * @param data Die Werte der Matrix, zeilenweise hintereinander.
+   */
+  protected Matrix(int n, int m, double data[]) {
+    if (data != null && data.length != n * m)
+      throw new IllegalArgumentException("Dimension Error");
+
+    this.rows = n;
+    this.cols = m;
+    this.data = data;
   }
 
 
@@ -73,7 +116,7 @@ public class Matrix {
    * @return Die Anzahl der Reihen der Matrix.
    */
   public int getRows() {
-    return data.length;
+    return rows;
   }
 
 
@@ -81,7 +124,37 @@ public class Matrix {
    * @return Die Anzahl der Spalten dieser Matrix.
    */
   public int getCols() {
-    return data[0].length;
+    return cols;
+  }
+
+
+  /**
+   * Gibt den zusammenhngenden Speicher der Matrix zurck. Die Werte liegen
+   * zeilenweise hintereinander, der Eintrag (i, j) also an der Stelle
+   * {@code i * getCols() + j}. Achtung: Es wird keine Kopie erstellt! Nur
+   * Matrizen mit eigener Speicherung (z.B. FloatMatrix) liefern eine Kopie,
+   * nderungen daran wirken sich nicht auf die Matrix aus.
+   * 
+   * @return Die Werte der Matrix.
+   */
+  public double[] getData() {
+    return values(this);
+  }
+
+
+  /**
+   * Kopiert die Werte der Matrix in ein zweidimensionales Array.
+   * 
+   * @return Die Werte der Matrix, nach Reihen aufgeteilt.
+   */
+  public double[][] toArray() {
+    double res[][] = new double[rows][cols];
+    double x[] = values(this);
+
+    for (int i = 0; i < rows; i++)
+      System.arraycopy(x, i * cols, res[i], 0, cols);
+
+    return res;
   }
 
 
@@ -91,7 +164,7 @@ public class Matrix {
    * @return Den Eintrag an der Stelle ({@code i}, {@code j}).
    */
   public double get(int i, int j) {
-    return data[i][j];
+    return data[i * cols + j];
   }
 
 
@@ -102,7 +175,7 @@ public class Matrix {
    *          werden soll.
    */
   public void set(int i, int j, double d) {
-    data[i][j] = d;
+    data[i * cols + j] = d;
   }
 
 
@@ -112,10 +185,10 @@ public class Matrix {
    * @param d Der Wert, mit dem die Matrix gefllt werden soll.
    */
   public void fill(double d) {
-    for (int i = 0; i < getRows(); i++) {
-      for (int j = 0; j < getCols(); j++)
-        this.data[i][j] = d;
-    }
+    double x[] = output(this);
+
+    Arrays.fill(x, d);
+    writeBack(this, x);
   }
 
 
@@ -136,11 +209,13 @@ public class Matrix {
     if (getRows() != mat.getRows() || getCols() != mat.getCols())
       throw new Exception("Dimension Error");
 
-    for (int i = 0; i < getRows(); i++) {
-      for (int j = 0; j < getCols(); j++)
-        data[i][j] += mat.get(i, j);
-    }
+    double x[] = values(this);
+    double y[] = values(mat);
 
+    for (int i = 0; i < x.length; i++)
+      x[i] += y[i];
+
+    writeBack(this, x);
     return this;
   }
 
@@ -157,11 +232,13 @@ public class Matrix {
     if (getRows() != mat.getRows() || getCols() != mat.getCols())
       throw new Exception("Dimension Error");
 
-    for (int i = 0; i < getRows(); i++) {
-      for (int j = 0; j < getCols(); j++)
-        data[i][j] += mat.get(i, j);
-    }
+    double x[] = values(this);
+    double y[] = values(mat);
+
+    for (int i = 0; i < x.length; i++)
+      x[i] += y[i];
 
+    writeBack(this, x);
     return this;
   }
 
@@ -175,23 +252,80 @@ public class Matrix {
    *                   Anzahl Reihen der anderen entsprechen.
    */
   public Matrix mult(Matrix mat) throws Exception {
-    if (this.getCols() != mat.getRows())
+    return mult(mat, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert auf diese Matrix (von rechts) eine weitere. Matrizen mit
+   * eigener Speicherung knnen dabei ihre Gre nicht ndern, fr sie muss
+   * mat also so viele Spalten wie Reihen haben.
+   * 
+   * @param mat  Die Matrix, die auf diese multipliziert wird (von rechts).
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Das Ergebnis der Matrix-Multiplikation.
+   * @throws Exception Sollte die Anzahl der Spalten dieser Matrix nicht der
+   *                   Anzahl Reihen der anderen entsprechen.
+   */
+  public Matrix mult(Matrix mat, Execution mode) throws Exception {
+    if (data == null && mat.getCols() != cols)
       throw new Exception("Dimension Error");
 
-    Matrix res = new Matrix(this.getRows(), mat.getCols());
+    Matrix res = multInto(mat, new Matrix(this.getRows(), mat.getCols()),
+        mode);
 
-    for (int i = 0; i < getRows(); i++) {
-      for (int j = 0; j < mat.getCols(); i++) {
-        for (int k = 0; k < getCols(); k++)
-          res.data[i][j] += data[i][k] * mat.data[k][j];
-      }
+    if (data == null) {
+      writeBack(this, res.data);
+      return this;
     }
 
     this.data = res.data;
+    this.cols = res.cols;
     return this;
   }
 
 
+  /**
+   * Multipliziert diese Matrix (von rechts) mit einer weiteren und schreibt
+   * das Ergebnis in eine vorhandene Matrix. Diese darf keiner der beiden
+   * Faktoren sein.
+   * 
+   * @param mat Der rechte Faktor.
+   * @param out Die Matrix, die das Ergebnis aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Dimensionen der Matrizen nicht
+   *                   zueinander passen.
+   */
+  public Matrix multInto(Matrix mat, Matrix out) throws Exception {
+    return multInto(mat, out, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert diese Matrix (von rechts) mit einer weiteren und schreibt
+   * das Ergebnis in eine vorhandene Matrix. Diese darf keiner der beiden
+   * Faktoren sein.
+   * 
+   * @param mat  Der rechte Faktor.
+   * @param out  Die Matrix, die das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Dimensionen der Matrizen nicht
+   *                   zueinander passen.
+   */
+  public Matrix multInto(Matrix mat, Matrix out, Execution mode)
+      throws Exception {
+    if (this.getCols() != mat.getRows() || out.getRows() != this.getRows()
+        || out.getCols() != mat.getCols())
+      throw new Exception("Dimension Error");
+
+    out.fill(0);
+    multBlocked(this, mat, out, mode);
+
+    return out;
+  }
+
+
   /**
    * Multipliziert einen Vektor auf diese Matrix (von rechts).
    * 
@@ -201,21 +335,351 @@ public class Matrix {
    *                   Anzahl an Werten des Vektors entsprechen.
    */
   public Vektor mult(Vektor v) throws Exception {
-    if (this.getCols() != v.getLength())
+    return mult(v, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor auf diese Matrix (von rechts).
+   * 
+   * @param v    Der Vektor, der (von rechts) auf diese Matrix multipliziert
+   *             wird.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Das Ergebnis der Matrix-Vektor-Multiplikation.
+   * @throws Exception Sollte die Anzahl der Spalten dieser Matrix nicht der
+   *                   Anzahl an Werten des Vektors entsprechen.
+   */
+  public Vektor mult(Vektor v, Execution mode) throws Exception {
+    return multInto(v, new Vektor(getRows()), mode);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor auf diese Matrix (von rechts) und schreibt das
+   * Ergebnis in einen vorhandenen Vektor. Dieser darf nicht v selbst sein.
+   * 
+   * @param v   Der Vektor, der (von rechts) auf diese Matrix multipliziert
+   *            wird.
+   * @param out Der Vektor, der das Ergebnis aufnimmt.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Vektor multInto(Vektor v, Vektor out) throws Exception {
+    return multInto(v, out, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor auf diese Matrix (von rechts) und schreibt das
+   * Ergebnis in einen vorhandenen Vektor. Dieser darf nicht v selbst sein.
+   * 
+   * @param v    Der Vektor, der (von rechts) auf diese Matrix multipliziert
+   *             wird.
+   * @param out  Der Vektor, der das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Vektor multInto(Vektor v, Vektor out, Execution mode)
+      throws Exception {
+    if (this.getCols() != v.getLength() || this.getRows() != out.getLength())
       throw new Exception("Dimension Error");
 
-    Vektor res = new Vektor(getRows());
+    double w[] = values(this);
+    double x[] = v.getData();
+    double y[] = out.getData();
 
-    for (int i = 0; i < getRows(); i++) {
-      double sum = 0;
+    mode.forRows(rows, cols, (from, to) -> {
+      for (int i = from; i < to; i++)
+        y[i] = Kernels.dot(w, i * cols, x, 0, cols);
+    });
 
-      for (int k = 0; k < getCols(); k++)
-        sum += data[i][k] * v.get(k);
+    return out;
+  }
 
-      res.set(i, sum);
-    }
 
-    return res;
+  /**
+   * Berechnet f(W * (v, 1)) fr diese Matrix W in einem einzigen Durchlauf.
+   * Die letzte Spalte der Matrix wird dabei als Bias behandelt: Statt v um
+   * eine 1 zu erweitern, wird sie direkt auf das Skalarprodukt der brigen
+   * Spalten mit v addiert. Auf das Ergebnis jeder Reihe wird anschlieend f
+   * angewendet.
+   * 
+   * @param v    Der Vektor ohne Biaserweiterung. Er hat also eine Spalte
+   *             weniger als die Matrix.
+   * @param f    Die Funktion, die auf jeden Eintrag des Ergebnisses angewendet
+   *             wird.
+   * @param out  Der Vektor, der das Ergebnis aufnimmt. Er darf nicht v selbst
+   *             sein.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Vektor affineInto(Vektor v, DoubleUnaryOperator f, Vektor out,
+      Execution mode) throws Exception {
+    if (this.getCols() != v.getLength() + 1
+        || this.getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int n = cols - 1;
+    double w[] = values(this);
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(rows, cols, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int offset = i * cols;
+        double sum = Kernels.dot(w, offset, x, 0, n) + w[offset + n];
+
+        y[i] = f.applyAsDouble(sum);
+      }
+    });
+
+    return out;
+  }
+
+
+  /**
+   * Die Variante von affineInto fr viele Vektoren auf einmal. Jede Reihe p
+   * von x ist ein Vektor, die Reihe p von out erhlt f(this * (x_p, 1)). Es
+   * gilt also out = f((x, 1) * this^T).
+   * 
+   * Die Vektoren werden in Blcken zu je BLOCK Reihen abgearbeitet. Jede
+   * Reihe dieser Matrix wird so nur einmal pro Block statt einmal pro Vektor
+   * aus dem Speicher geladen. Im parallelen Modus werden die Blcke auf
+   * mehrere Threads verteilt. Bei Matrizen mit eigener Speicherung werden die
+   * Werte einmal pro Aufruf kopiert.
+   * 
+   * @param x    Die Vektoren (ohne Erweiterung) als Reihen einer Matrix.
+   * @param f    Die Funktion, die auf jeden Eintrag des Ergebnisses angewendet
+   *             wird.
+   * @param out  Die Matrix, die das Ergebnis aufnimmt. Sie hat so viele Reihen
+   *             wie x und so viele Spalten, wie diese Matrix Reihen hat.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Dimensionen der Matrizen nicht zueinander
+   *                   passen.
+   */
+  public Matrix affineInto(Matrix x, DoubleUnaryOperator f, Matrix out,
+      Execution mode) throws Exception {
+    if (this.getCols() != x.getCols() + 1 || out.getRows() != x.getRows()
+        || out.getCols() != this.getRows())
+      throw new Exception("Dimension Error");
+
+    final int n = cols - 1;
+    final int r = rows;
+    double w[] = values(this);
+    double a[] = values(x);
+    double z[] = output(out);
+
+    mode.forRows(x.getRows(), (long) rows * cols, (from, to) -> {
+      double s[] = new double[4];
+
+      for (int pb = from; pb < to; pb += BLOCK) {
+        int pEnd = Math.min(pb + BLOCK, to);
+        int i = 0;
+
+        // Je zwei Reihen dieser Matrix mit je zwei Vektoren
+        for (; i + 1 < r; i += 2) {
+          int w0 = i * (n + 1);
+          int w1 = w0 + n + 1;
+          int p = pb;
+
+          for (; p + 1 < pEnd; p += 2) {
+            Kernels.dot2x2(w, w0, w1, a, p * n, p * n + n, n, s);
+            z[p * r + i] = f.applyAsDouble(s[0] + w[w0 + n]);
+            z[p * r + r + i] = f.applyAsDouble(s[1] + w[w0 + n]);
+            z[p * r + i + 1] = f.applyAsDouble(s[2] + w[w1 + n]);
+            z[p * r + r + i + 1] = f.applyAsDouble(s[3] + w[w1 + n]);
+          }
+
+          for (; p < pEnd; p++) {
+            z[p * r + i] = f.applyAsDouble(
+                Kernels.dot(w, w0, a, p * n, n) + w[w0 + n]);
+            z[p * r + i + 1] = f.applyAsDouble(
+                Kernels.dot(w, w1, a, p * n, n) + w[w1 + n]);
+          }
+        }
+
+        // Eine eventuell brige letzte Reihe
+        for (; i < r; i++) {
+          int w0 = i * (n + 1);
+
+          for (int p = pb; p < pEnd; p++)
+            z[p * r + i] = f.applyAsDouble(
+                Kernels.dot(w, w0, a, p * n, n) + w[w0 + n]);
+        }
+      }
+    });
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Addiert das alpha-fache dyadische Produkt zweier Vektoren auf diese
+   * Matrix: this += alpha * x * y^T. Anders als bei Vektor.dyadicProduct
+   * entsteht dabei keine neue Matrix.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Der Spaltenvektor mit der Lnge der Reihenanzahl.
+   * @param y     Der Zeilenvektor mit der Lnge der Spaltenanzahl.
+   * @return Diese Matrix.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Matrix addOuterProduct(double alpha, Vektor x, Vektor y)
+      throws Exception {
+    return addOuterProduct(alpha, x, y, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Addiert das alpha-fache dyadische Produkt zweier Vektoren auf diese
+   * Matrix: this += alpha * x * y^T.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Der Spaltenvektor mit der Lnge der Reihenanzahl.
+   * @param y     Der Zeilenvektor mit der Lnge der Spaltenanzahl.
+   * @param mode  Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Diese Matrix.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Matrix addOuterProduct(double alpha, Vektor x, Vektor y,
+      Execution mode) throws Exception {
+    if (this.getRows() != x.getLength() || this.getCols() != y.getLength())
+      throw new Exception("Dimension Error");
+
+    addOuterProduct(alpha, x, y, false, mode);
+    return this;
+  }
+
+
+  /**
+   * Addiert das alpha-fache dyadische Produkt von x mit dem um eine 1
+   * erweiterten Vektor y auf diese Matrix: this += alpha * x * (y, 1)^T. Die
+   * letzte Spalte erhlt also alpha * x. Dies ist das Gegenstck zu
+   * affineInto und entspricht dem Gradienten einer Gewichtsmatrix mit
+   * Biasspalte.
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Der Spaltenvektor mit der Lnge der Reihenanzahl.
+   * @param y     Der Zeilenvektor (ohne Erweiterung), um eins krzer als die
+   *              Spaltenanzahl.
+   * @param mode  Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Diese Matrix.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten dieser Matrix passen.
+   */
+  public Matrix addAffineOuterProduct(double alpha, Vektor x, Vektor y,
+      Execution mode) throws Exception {
+    if (this.getRows() != x.getLength()
+        || this.getCols() != y.getLength() + 1)
+      throw new Exception("Dimension Error");
+
+    addOuterProduct(alpha, x, y, true, mode);
+    return this;
+  }
+
+
+  /**
+   * Addiert die dyadischen Produkte vieler Vektorpaare auf diese Matrix. Fr
+   * jede Reihe p von x und y wird x_p * (y_p, 1)^T addiert, insgesamt also
+   * this += x^T * (y, 1). Dies ist der Gradient einer Gewichtsmatrix mit
+   * Biasspalte ber einen ganzen Stapel von Patterns.
+   * 
+   * Die Produkte werden fr jeden Eintrag in der Reihenfolge der Reihen von x
+   * und y aufaddiert, das Ergebnis gleicht also genau dem von
+   * addAffineOuterProduct fr jedes Paar nacheinander.
+   * 
+   * @param x    Die Spaltenvektoren als Reihen einer Matrix, jeder mit der
+   *             Lnge der Reihenanzahl dieser Matrix.
+   * @param y    Die Zeilenvektoren (ohne Erweiterung) als Reihen einer Matrix,
+   *             jeder um eins krzer als die Spaltenanzahl dieser Matrix.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Diese Matrix.
+   * @throws Exception Sollten die Dimensionen der Matrizen nicht zueinander
+   *                   passen.
+   */
+  public Matrix addAffineOuterProducts(Matrix x, Matrix y, Execution mode)
+      throws Exception {
+    if (x.getRows() != y.getRows() || x.getCols() != this.getRows()
+        || y.getCols() + 1 != this.getCols())
+      throw new Exception("Dimension Error");
+
+    final int n = y.getCols();
+    final int count = x.getRows();
+    double z[] = values(this);
+    double a[] = values(x);
+    double b[] = values(y);
+
+    // Die Vektorpaare werden in Blcken zu je BLOCK Paaren abgearbeitet,
+    // innerhalb eines Blocks bleibt die jeweilige Reihe dieser Matrix im
+    // Cache.
+    mode.forRows(rows, (long) count * cols, (from, to) -> {
+      for (int pb = 0; pb < count; pb += BLOCK) {
+        int pEnd = Math.min(pb + BLOCK, count);
+
+        for (int i = from; i < to; i++) {
+          int offset = i * cols;
+          int p = pb;
+
+          for (; p + 1 < pEnd; p += 2) {
+            double c0 = a[p * rows + i];
+            double c1 = a[p * rows + rows + i];
+
+            Kernels.axpy2(c0, c1, b, p * n, p * n + n, z, offset, n);
+            z[offset + n] = z[offset + n] + c0 + c1;
+          }
+
+          for (; p < pEnd; p++) {
+            double c = a[p * rows + i];
+
+            Kernels.axpy(c, b, p * n, z, offset, n);
+            z[offset + n] += c;
+          }
+        }
+      }
+    });
+
+    writeBack(this, z);
+    return this;
+  }
+
+
+  /**
+   * Die gemeinsame Rechnung von addOuterProduct und addAffineOuterProduct.
+   * Jede Reihe erhlt das alpha * x[i]-fache von y (siehe Kernels.axpy).
+   * 
+   * @param alpha Der Faktor.
+   * @param x     Der Spaltenvektor.
+   * @param y     Der Zeilenvektor.
+   * @param bias  Ob die letzte Spalte als Eintrag 1 von y behandelt wird.
+   * @param mode  Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   */
+  private void addOuterProduct(double alpha, Vektor x, Vektor y, boolean bias,
+      Execution mode) {
+    final int n = y.getLength();
+    double z[] = values(this);
+    double a[] = x.getData();
+    double b[] = y.getData();
+
+    mode.forRows(rows, cols, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        double c = alpha * a[i];
+
+        Kernels.axpy(c, b, 0, z, i * cols, n);
+        if (bias)
+          z[i * cols + n] += c;
+      }
+    });
+
+    writeBack(this, z);
   }
 
 
@@ -226,11 +690,12 @@ public class Matrix {
    * @return Das Ergebnis der Matrix-Zahl-Multiplikation.
    */
   public Matrix mult(double lambda) {
-    for (int i = 0; i < getRows(); i++) {
-      for (int j = 0; j < getCols(); j++)
-        data[i][j] *= lambda;
-    }
+    double x[] = values(this);
+
+    for (int i = 0; i < x.length; i++)
+      x[i] *= lambda;
 
+    writeBack(this, x);
     return this;
   }
 
@@ -242,12 +707,16 @@ public class Matrix {
    * @return Die extrahierte Reihe als Vektor.
    */
   public Vektor extractRow(int r) {
-    Vektor row = new Vektor(getCols());
+    if (data == null) {
+      Vektor row = new Vektor(getCols());
 
-    for (int i = 0; i < row.getLength(); i++)
-      row.set(i, get(r, i));
+      for (int i = 0; i < row.getLength(); i++)
+        row.set(i, get(r, i));
 
-    return row;
+      return row;
+    }
+
+    return new Vektor(Arrays.copyOfRange(data, r * cols, (r + 1) * cols));
   }
 
 
@@ -263,8 +732,14 @@ public class Matrix {
     if (getCols() != v.getLength())
       throw new Exception("Dimension Error");
 
-    for (int i = 0; i < getCols(); i++)
-      data[r][i] = v.get(i);
+    if (data == null) {
+      for (int j = 0; j < cols; j++)
+        set(r, j, v.get(j));
+
+      return;
+    }
+
+    System.arraycopy(v.getData(), 0, data, r * cols, cols);
   }
 
 
@@ -276,17 +751,107 @@ public class Matrix {
    * @return Die Matrix, die die Ergebnisse der Funktion fr die entsprechenden
    *         Werte aus dieser Matrix enthlt.
    */
-  public Matrix apply(Function<Double, Double> f) {
-    Matrix res = new Matrix(this);
+  public Matrix apply(DoubleUnaryOperator f) {
+    Matrix res = new Matrix(rows, cols);
+    double x[] = values(this);
 
-    for (int i = 0; i < getRows(); i++)
-      for (int j = 0; j < getCols(); j++)
-        res.data[i][j] = f.apply(res.data[i][j]);
+    for (int i = 0; i < x.length; i++)
+      res.data[i] = f.applyAsDouble(x[i]);
 
     return res;
   }
 
 
+  /**
+   * Wendet eine Funktion auf die gesamte Matrix an und berschreibt deren
+   * Werte mit den Ergebnissen.
+   * 
+   * @param f Die Funktion, die auf alle Werte der Matrix angewendet werden
+   *          soll.
+   * @return Diese Matrix.
+   */
+  public Matrix applyInPlace(DoubleUnaryOperator f) {
+    double x[] = values(this);
+
+    for (int i = 0; i < x.length; i++)
+      x[i] = f.applyAsDouble(x[i]);
+
+    writeBack(this, x);
+    return this;
+  }
+
+
+  /**
+   * Wendet eine Funktion auf die gesamte Matrix an und schreibt die Ergebnisse
+   * in eine vorhandene Matrix. Diese darf auch die Matrix selbst sein.
+   * 
+   * @param f   Die Funktion, die auf alle Werte der Matrix angewendet werden
+   *            soll.
+   * @param out Die Matrix, die die Ergebnisse aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten beide Matrizen nicht die gleiche Anzahl an
+   *                   Reihen und Spalten haben.
+   */
+  public Matrix applyInto(DoubleUnaryOperator f, Matrix out)
+      throws Exception {
+    if (getRows() != out.getRows() || getCols() != out.getCols())
+      throw new Exception("Dimension Error");
+
+    double x[] = values(this);
+    double z[] = output(out);
+
+    for (int i = 0; i < x.length; i++)
+      z[i] = f.applyAsDouble(x[i]);
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Erstellt eine Kopie der Matrix in derselben Speicherart, also etwa eine
+   * FloatMatrix als Kopie einer FloatMatrix oder eine SparseMatrix mit
+   * derselben Besetzungsstruktur. Anders als beim Copy-Konstruktor bleiben so
+   * Speicherbedarf und Rechenaufwand der Matrix erhalten. copyInto kann die
+   * Werte spter ohne Umwandlung in die Kopie bertragen.
+   * 
+   * @return Die Kopie.
+   */
+  public Matrix copy() {
+    return new Matrix(this);
+  }
+
+
+  /**
+   * Kopiert die Werte der Matrix in eine vorhandene Matrix, ohne dabei neuen
+   * Speicher anzulegen. Die Werte von Matrizen mit eigener Speicherung (z.B.
+   * SparseMatrix) werden einzeln gelesen.
+   * 
+   * @param out Die Matrix, die die Werte aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten beide Matrizen nicht die gleiche Anzahl an
+   *                   Reihen und Spalten haben.
+   */
+  public Matrix copyInto(Matrix out) throws Exception {
+    if (getRows() != out.getRows() || getCols() != out.getCols())
+      throw new Exception("Dimension Error");
+
+    double z[] = output(out);
+
+    if (data != null) {
+      System.arraycopy(data, 0, z, 0, z.length);
+    } else {
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < cols; j++)
+          z[i * cols + j] = get(i, j);
+      }
+    }
+
+    writeBack(out, z);
+    return out;
+  }
+
+
   /**
    * Formatiert diese Matrix als String.
    */
@@ -297,9 +862,9 @@ public class Matrix {
     for (int i = 0; i < getRows(); i++) {
       for (int j = 0; j < getCols(); j++)
         if (j < getCols() - 1)
-          result += data[i][j] + " ";
+          result += get(i, j) + " ";
         else
-          result += data[i][j];
+          result += get(i, j);
 
       result += "\n";
     }
@@ -323,17 +888,7 @@ public class Matrix {
    *                   und Spalten haben.
    */
   public static Matrix add(Matrix a, Matrix b) throws Exception {
-    if (a.getRows() != b.getRows() || a.getCols() != b.getCols())
-      throw new Exception("Dimension Error");
-
-    Matrix res = new Matrix(a);
-
-    for (int i = 0; i < a.getRows(); i++) {
-      for (int j = 0; j < a.getCols(); j++)
-        res.data[i][j] += b.get(i, j);
-    }
-
-    return res;
+    return addInto(a, b, new Matrix(a.getRows(), a.getCols()));
   }
 
 
@@ -352,10 +907,10 @@ public class Matrix {
 
     Matrix res = new Matrix(a);
 
-    for (int i = 0; i < a.getRows(); i++) {
-      for (int j = 0; j < a.getCols(); j++)
-        res.data[i][j] += b.get(i, j);
-    }
+    double y[] = values(b);
+
+    for (int i = 0; i < res.data.length; i++)
+      res.data[i] += y[i];
 
     return res;
   }
@@ -371,19 +926,23 @@ public class Matrix {
    *                   Anzahl Reihen der rechten entsprechen.
    */
   public static Matrix mult(Matrix a, Matrix b) throws Exception {
-    if (a.getCols() != b.getRows())
-      throw new Exception("Dimension Error");
-
-    Matrix res = new Matrix(a.getRows(), b.getCols());
+    return mult(a, b, Execution.SEQUENTIAL);
+  }
 
-    for (int i = 0; i < a.getRows(); i++) {
-      for (int j = 0; j < b.getCols(); i++) {
-        for (int k = 0; k < a.getCols(); k++)
-          res.data[i][j] += a.get(i, k) * b.get(k, j);
-      }
-    }
 
-    return res;
+  /**
+   * Multipliziert zwei Matrizen miteinander
+   * 
+   * @param a    Der linke Faktor.
+   * @param b    Der rechte Faktor.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Das Ergebnis der Matrix-Multiplikation
+   * @throws Exception Sollte die Anzahl der Spalten der linken Matrix nicht der
+   *                   Anzahl Reihen der rechten entsprechen.
+   */
+  public static Matrix mult(Matrix a, Matrix b, Execution mode)
+      throws Exception {
+    return a.multInto(b, new Matrix(a.getRows(), b.getCols()), mode);
   }
 
 
@@ -400,18 +959,7 @@ public class Matrix {
     if (mat.getCols() != v.getLength())
       throw new Exception("Dimension Error");
 
-    Vektor res = new Vektor(mat.getRows());
-
-    for (int i = 0; i < mat.getRows(); i++) {
-      double sum = 0;
-
-      for (int j = 0; j < mat.getCols(); j++)
-        sum += mat.get(i, j) * v.get(j);
-
-      res.set(i, sum);
-    }
-
-    return res;
+    return mat.mult(v);
   }
 
 
@@ -425,21 +973,91 @@ public class Matrix {
    *                   Anzahl an Werten des Vektors entsprechen.
    */
   public static Vektor mult(Vektor v, Matrix mat) throws Exception {
-    if (mat.getRows() != v.getLength())
+    return mult(v, mat, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor (von links) mit einer Matrix.
+   * 
+   * @param v    Der linke Faktor.
+   * @param mat  Der rechte Faktor.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Das Ergebnis der Vekor-Matrix-Multiplikation.
+   * @throws Exception Sollte die Anzahl der Spalten dieser Matrix nicht der
+   *                   Anzahl an Werten des Vektors entsprechen.
+   */
+  public static Vektor mult(Vektor v, Matrix mat, Execution mode)
+      throws Exception {
+    return multInto(v, mat, new Vektor(mat.getCols()), mode);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor (von links) mit einer Matrix und schreibt das
+   * Ergebnis in einen vorhandenen Vektor. Dieser darf nicht v selbst sein.
+   * 
+   * @param v   Der linke Faktor.
+   * @param mat Der rechte Faktor.
+   * @param out Der Vektor, der das Ergebnis aufnimmt.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten der Matrix passen.
+   */
+  public static Vektor multInto(Vektor v, Matrix mat, Vektor out)
+      throws Exception {
+    return multInto(v, mat, out, Execution.SEQUENTIAL);
+  }
+
+
+  /**
+   * Multipliziert einen Vektor (von links) mit einer Matrix und schreibt das
+   * Ergebnis in einen vorhandenen Vektor. Dieser darf nicht v selbst sein.
+   * 
+   * @param v    Der linke Faktor.
+   * @param mat  Der rechte Faktor.
+   * @param out  Der Vektor, der das Ergebnis aufnimmt.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   * @return Den Vektor out.
+   * @throws Exception Sollten die Lngen der Vektoren nicht zu den Reihen und
+   *                   Spalten der Matrix passen.
+   */
+  public static Vektor multInto(Vektor v, Matrix mat, Vektor out,
+      Execution mode) throws Exception {
+    if (mat.getRows() != v.getLength() || mat.getCols() != out.getLength())
       throw new Exception("Dimension Error");
 
-    Vektor res = new Vektor(mat.getCols());
+    // Die Reihen der Matrix werden, gewichtet mit den Eintrgen von v,
+    // nacheinander auf das Ergebnis addiert. So wird die Matrix wie bei
+    // mult(Vektor) fortlaufend gelesen statt spaltenweise. Aufgeteilt wird
+    // nach Spaltenbereichen, also Abschnitten des Ergebnisvektors.
+    double x[] = v.getData();
+    double y[] = out.getData();
 
-    for (int i = 0; i < mat.getCols(); i++) {
-      double sum = 0;
+    Arrays.fill(y, 0);
+    mode.forRows(mat.getCols(), mat.getRows(),
+        (from, to) -> mat.addWeightedRows(x, y, from, to));
 
-      for (int j = 0; j < mat.getRows(); j++)
-        sum += mat.get(j, i) * v.get(j);
+    return out;
+  }
 
-      res.set(i, sum);
-    }
 
-    return res;
+  /**
+   * Addiert die mit den Eintrgen von x gewichteten Reihen dieser Matrix auf
+   * einen Abschnitt von y: y[j] += x[i] * (i, j) fr alle Reihen i und die
+   * Spalten from <= j < to. Unterklassen mit eigener Speicherung knnen diese
+   * Methode berschreiben, um ohne Kopie ihrer Werte zu rechnen.
+   * 
+   * @param x    Die Gewichte der Reihen, einer pro Reihe.
+   * @param y    Das Array, auf das addiert wird, einer pro Spalte.
+   * @param from Die erste Spalte des Abschnitts.
+   * @param to   Die Spalte nach dem Ende des Abschnitts.
+   */
+  void addWeightedRows(double x[], double y[], int from, int to) {
+    double w[] = values(this);
+
+    for (int i = 0; i < rows; i++)
+      Kernels.axpy(x[i], w, i * cols + from, y, from, to - from);
   }
 
 
@@ -453,17 +1071,7 @@ public class Matrix {
    *                   und Spalten haben.
    */
   public static Matrix coordinateMult(Matrix a, Matrix b) throws Exception {
-    if (a.getRows() != b.getRows() || a.getCols() != b.getCols())
-      throw new Exception("Dimension Error");
-
-    Matrix res = new Matrix(a);
-
-    for (int i = 0; i < a.getRows(); i++) {
-      for (int j = 0; j < a.getCols(); j++)
-        res.data[i][j] *= b.get(i, j);
-    }
-
-    return res;
+    return hadamardInto(a, b, new Matrix(a.getRows(), a.getCols()));
   }
 
 
@@ -477,11 +1085,342 @@ public class Matrix {
   public static Matrix mult(Matrix mat, double lambda) {
     Matrix res = new Matrix(mat);
 
-    for (int i = 0; i < res.getRows(); i++) {
-      for (int k = 0; k < res.getCols(); k++)
-        res.data[i][k] *= lambda;
+    for (int i = 0; i < res.data.length; i++)
+      res.data[i] *= lambda;
+
+    return res;
+  }
+
+
+  /*
+   * /////////////////////////////////////// Operatoren mit Zielmatrix
+   * ///////////////////////////////////////
+   */
+
+  /**
+   * Addiert zwei Matrizen und schreibt das Ergebnis in eine vorhandene Matrix.
+   * Diese darf auch einer der Summanden sein.
+   * 
+   * @param a   Der linke Summand.
+   * @param b   Der rechte Summand.
+   * @param out Die Matrix, die das Ergebnis aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Matrizen nicht die gleiche Anzahl an Reihen
+   *                   und Spalten haben.
+   */
+  public static Matrix addInto(Matrix a, Matrix b, Matrix out)
+      throws Exception {
+    checkSameDimensions(a, b, out);
+
+    double x[] = values(a);
+    double y[] = values(b);
+    double z[] = output(out);
+
+    for (int i = 0; i < z.length; i++)
+      z[i] = x[i] + y[i];
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Subtrahiert b von a und schreibt das Ergebnis in eine vorhandene Matrix.
+   * Diese darf auch a oder b sein.
+   * 
+   * @param a   Der Minuend.
+   * @param b   Der Subtrahend.
+   * @param out Die Matrix, die das Ergebnis aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Matrizen nicht die gleiche Anzahl an Reihen
+   *                   und Spalten haben.
+   */
+  public static Matrix subtractInto(Matrix a, Matrix b, Matrix out)
+      throws Exception {
+    checkSameDimensions(a, b, out);
+
+    double x[] = values(a);
+    double y[] = values(b);
+    double z[] = output(out);
+
+    for (int i = 0; i < z.length; i++)
+      z[i] = x[i] - y[i];
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Multipliziert zwei Matrizen koordinatenweise miteinander und schreibt das
+   * Ergebnis in eine vorhandene Matrix. Diese darf auch a oder b sein.
+   * 
+   * @param a   Der linke Faktor.
+   * @param b   Der rechte Faktor.
+   * @param out Die Matrix, die das Ergebnis aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Matrizen nicht die gleiche Anzahl an Reihen
+   *                   und Spalten haben.
+   */
+  public static Matrix hadamardInto(Matrix a, Matrix b, Matrix out)
+      throws Exception {
+    checkSameDimensions(a, b, out);
+
+    double x[] = values(a);
+    double y[] = values(b);
+    double z[] = output(out);
+
+    for (int i = 0; i < z.length; i++)
+      z[i] = x[i] * y[i];
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Verknpft zwei Matrizen koordinatenweise mit einer Funktion.
+   * 
+   * @param op Die Funktion, die auf je zwei Eintrge angewendet wird.
+   * @param a  Die Matrix mit den linken Argumenten.
+   * @param b  Die Matrix mit den rechten Argumenten.
+   * @return Eine neue Matrix mit den Ergebnissen.
+   * @throws Exception Sollten die Matrizen nicht die gleiche Anzahl an Reihen
+   *                   und Spalten haben.
+   */
+  public static Matrix apply(DoubleBinaryOperator op, Matrix a, Matrix b)
+      throws Exception {
+    return applyInto(op, a, b, new Matrix(a.getRows(), a.getCols()));
+  }
+
+
+  /**
+   * Verknpft zwei Matrizen koordinatenweise mit einer Funktion und schreibt
+   * die Ergebnisse in eine vorhandene Matrix. Diese darf auch a oder b sein.
+   * 
+   * @param op  Die Funktion, die auf je zwei Eintrge angewendet wird.
+   * @param a   Die Matrix mit den linken Argumenten.
+   * @param b   Die Matrix mit den rechten Argumenten.
+   * @param out Die Matrix, die die Ergebnisse aufnimmt.
+   * @return Die Matrix out.
+   * @throws Exception Sollten die Matrizen nicht die gleiche Anzahl an Reihen
+   *                   und Spalten haben.
+   */
+  public static Matrix applyInto(DoubleBinaryOperator op, Matrix a, Matrix b,
+      Matrix out) throws Exception {
+    checkSameDimensions(a, b, out);
+
+    double x[] = values(a);
+    double y[] = values(b);
+    double z[] = output(out);
+
+    for (int i = 0; i < z.length; i++)
+      z[i] = op.applyAsDouble(x[i], y[i]);
+
+    writeBack(out, z);
+    return out;
+  }
+
+
+  /**
+   * Prft, ob drei Matrizen die gleiche Anzahl an Reihen und Spalten haben.
+   * 
+   * @throws Exception Falls nicht.
+   */
+  private static void checkSameDimensions(Matrix a, Matrix b, Matrix c)
+      throws Exception {
+    if (a.getRows() != b.getRows() || a.getCols() != b.getCols()
+        || a.getRows() != c.getRows() || a.getCols() != c.getCols())
+      throw new Exception("Dimension Error");
+  }
+
+
+  /**
+   * Berechnet das Matrix-Produkt a * b und addiert es auf res. Die Schleifen
+   * laufen in der Reihenfolge i-k-j, sodass sowohl die Reihen von b als auch
+   * die von res fortlaufend gelesen werden. Zustzlich werden k und j in
+   * Blcke der Gre BLOCK unterteilt, damit der gerade bentigte Teil von b
+   * im Cache bleibt, und es werden immer zwei Reihen von a gleichzeitig
+   * verarbeitet, sodass jeder geladene Wert von b zweimal verwendet wird.
+   * 
+   * Im parallelen Modus bearbeitet jeder Thread einen eigenen Block von
+   * Reihen des Ergebnisses.
+   * 
+   * @param a    Der linke Faktor.
+   * @param b    Der rechte Faktor.
+   * @param res  Die Matrix, auf die das Ergebnis addiert wird.
+   * @param mode Legt fest, ob die Berechnung parallel ausgefhrt wird.
+   */
+  private static void multBlocked(Matrix a, Matrix b, Matrix res,
+      Execution mode) {
+    final int l = a.cols;
+    final int m = b.cols;
+    final double x[] = values(a);
+    final double y[] = values(b);
+    final double z[] = values(res);
+
+    mode.forRows(a.rows, (long) l * m,
+        (from, to) -> multBlocked(x, y, z, l, m, from, to));
+    writeBack(res, z);
+  }
+
+
+  /**
+   * Der eigentliche Rechenkern von multBlocked fr die Reihen [from, to) von
+   * a und res. Dabei hat a l Spalten und b m Spalten.
+   */
+  private static void multBlocked(double x[], double y[], double z[], int l,
+      int m, int from, int to) {
+    for (int kb = 0; kb < l; kb += BLOCK) {
+      int kEnd = Math.min(kb + BLOCK, l);
+
+      for (int jb = 0; jb < m; jb += BLOCK) {
+        int jEnd = Math.min(jb + BLOCK, m);
+        int i = from;
+
+        for (; i + 1 < to; i += 2) {
+          int a0 = i * l;
+          int a1 = a0 + l;
+          int z0 = i * m;
+          int z1 = z0 + m;
+
+          int k = kb;
+
+          // Je zwei Reihen von y auf einmal, die Summanden werden dabei in
+          // derselben Reihenfolge addiert wie einzeln
+          for (; k + 1 < kEnd; k += 2) {
+            double x00 = x[a0 + k];
+            double x01 = x[a0 + k + 1];
+            double x10 = x[a1 + k];
+            double x11 = x[a1 + k + 1];
+            int yk = k * m;
+
+            for (int j = jb; j < jEnd; j++) {
+              double y0 = y[yk + j];
+              double y1 = y[yk + m + j];
+              z[z0 + j] = z[z0 + j] + x00 * y0 + x01 * y1;
+              z[z1 + j] = z[z1 + j] + x10 * y0 + x11 * y1;
+            }
+          }
+
+          for (; k < kEnd; k++) {
+            double x0 = x[a0 + k];
+            double x1 = x[a1 + k];
+            int yk = k * m;
+
+            for (int j = jb; j < jEnd; j++) {
+              double yv = y[yk + j];
+              z[z0 + j] += x0 * yv;
+              z[z1 + j] += x1 * yv;
+            }
+          }
+        }
+
+        // Eine eventuell brige letzte Reihe
+        for (; i < to; i++) {
+          int a0 = i * l;
+          int z0 = i * m;
+
+          for (int k = kb; k < kEnd; k++) {
+            double x0 = x[a0 + k];
+            int yk = k * m;
+
+            for (int j = jb; j < jEnd; j++)
+              z[z0 + j] += x0 * y[yk + j];
+          }
+        }
+      }
+    }
+  }
+
+
+  /**
+   * Gibt die Werte einer Matrix als flaches Array zurck. Bei gewhnlichen
+   * Matrizen ist das der Speicher selbst, bei Matrizen mit eigener Speicherung
+   * eine Kopie.
+   * 
+   * @param mat Die Matrix.
+   * @return Die Werte der Matrix, zeilenweise hintereinander.
+   */
+  static double[] values(Matrix mat) {
+    if (mat.data != null)
+      return mat.data;
+
+    double res[] = new double[mat.rows * mat.cols];
+
+    for (int i = 0; i < mat.rows; i++) {
+      for (int j = 0; j < mat.cols; j++)
+        res[i * mat.cols + j] = mat.get(i, j);
     }
 
     return res;
   }
+
+
+  /**
+   * Gibt das Array zurck, in das ein Ergebnis geschrieben wird, das alle
+   * Werte einer Matrix ersetzt. Bei gewhnlichen Matrizen ist das der
+   * Speicher selbst, bei Matrizen mit eigener Speicherung ein neues Array,
+   * das writeBack anschlieend bertrgt.
+   * 
+   * @param mat Die Matrix.
+   * @return Ein Array mit einem Eintrag pro Wert der Matrix.
+   */
+  static double[] output(Matrix mat) {
+    if (mat.data != null)
+      return mat.data;
+
+    return new double[mat.rows * mat.cols];
+  }
+
+
+  /**
+   * bertrgt Werte, die mit values oder output fr eine Matrix geholt und
+   * dann verndert wurden, in die Matrix. Ist das Array ihr Speicher selbst,
+   * ist nichts zu tun, andernfalls werden die Werte einzeln ber set
+   * geschrieben.
+   * 
+   * @param mat Die Matrix.
+   * @param x   Die neuen Werte, zeilenweise hintereinander.
+   */
+  static void writeBack(Matrix mat, double x[]) {
+    if (x == mat.data)
+      return;
+
+    for (int i = 0; i < mat.rows; i++) {
+      for (int j = 0; j < mat.cols; j++)
+        mat.set(i, j, x[i * mat.cols + j]);
+    }
+  }
+
+
+  /**
+   * Gibt an, ob eine Matrix ihre Werte im gewhnlichen double-Array speichert.
+   * 
+   * @param mat Die Matrix.
+   * @return true, falls target(mat) den Speicher der Matrix liefert.
+   */
+  static boolean hasArray(Matrix mat) {
+    return mat.data != null;
+  }
+
+
+  /**
+   * Gibt den Speicher einer Matrix zurck, in den ein Ergebnis geschrieben
+   * werden soll. Nur fr Rechenkerne, die vorher mit hasArray prfen, ob es
+   * diesen Speicher gibt; alle anderen verwenden values bzw. output und
+   * writeBack.
+   * 
+   * @param mat Die Matrix.
+   * @return Das double-Array der Matrix.
+   * @throws UnsupportedOperationException Falls die Matrix ihre Werte nicht in
+   *                                       einem double-Array speichert.
+   */
+  static double[] target(Matrix mat) {
+    if (mat.data == null)
+      throw new UnsupportedOperationException(
+          mat.getClass().getSimpleName() + " speichert keine double-Werte");
+
+    return mat.data;
+  }
 }
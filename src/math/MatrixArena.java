@@ -0,0 +1,110 @@
+package math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Ein Speicherbereich auerhalb des Java-Heaps mit ausdrcklicher
+ * Lebensdauer, etwa fr die Dauer eines Trainings. Alle Matrizen, die ber
+ * die Arena angelegt werden, sind OffHeapMatrix-Objekte und werden mit dem
+ * Schlieen der Arena gemeinsam freigegeben. Danach wirft jeder Zugriff auf
+ * sie eine IllegalStateException, statt unbemerkt mit veralteten Werten zu
+ * rechnen.
+ *
+ * <pre>
+ * try (MatrixArena arena = new MatrixArena()) {
+ *   net.storeWeights(arena);
+ *   training.train(epochs);
+ * }
+ * </pre>
+ *
+ * @author Roland Vlker
+ */
+public class MatrixArena implements AutoCloseable {
+
+  /**
+   * Die ber diese Arena angelegten Matrizen.
+   */
+  private final List<OffHeapMatrix> matrices;
+
+  /**
+   * Die Anzahl der belegten Bytes.
+   */
+  private long bytes;
+
+  /**
+   * Ob die Arena bereits geschlossen wurde.
+   */
+  private boolean closed;
+
+
+  /**
+   * Erstellt eine leere Arena.
+   */
+  public MatrixArena() {
+    matrices = new ArrayList<>();
+  }
+
+
+  /**
+   * Legt eine mit Nullen gefllte Matrix in der Arena an.
+   *
+   * @param n Anzahl der Reihen.
+   * @param m Anzahl der Spalten.
+   * @return Die neue Matrix.
+   * @throws IllegalStateException Falls die Arena bereits geschlossen ist.
+   */
+  public synchronized OffHeapMatrix allocate(int n, int m) {
+    if (closed)
+      throw new IllegalStateException("Arena wurde bereits geschlossen");
+
+    OffHeapMatrix mat = new OffHeapMatrix(n, m);
+    matrices.add(mat);
+    bytes += (long) n * m * Double.BYTES;
+
+    return mat;
+  }
+
+
+  /**
+   * Kopiert eine Matrix in die Arena.
+   *
+   * @param mat Die zu kopierende Matrix.
+   * @return Die Kopie in der Arena.
+   * @throws IllegalStateException Falls die Arena bereits geschlossen ist.
+   */
+  public OffHeapMatrix store(Matrix mat) {
+    OffHeapMatrix res = allocate(mat.getRows(), mat.getCols());
+    res.copy(mat);
+
+    return res;
+  }
+
+
+  /**
+   * Gibt die Anzahl der Bytes zurck, die die Matrizen dieser Arena belegen.
+   *
+   * @return Die Anzahl der belegten Bytes.
+   */
+  public synchronized long getBytes() {
+    return bytes;
+  }
+
+
+  /**
+   * Gibt alle Matrizen der Arena frei. Der Speicher selbst wird zurckgegeben,
+   * sobald die Speicherbereinigung die nicht mehr erreichbaren Puffer
+   * einsammelt, denn ein sofortiges Freigeben direkter Puffer sieht Java 17
+   * nicht vor.
+   */
+  @Override
+  public synchronized void close() {
+    for (OffHeapMatrix mat : matrices)
+      mat.release();
+
+    matrices.clear();
+    bytes = 0;
+    closed = true;
+  }
+}
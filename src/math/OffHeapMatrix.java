@@ -0,0 +1,334 @@
+package math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Eine Matrix, deren Werte auerhalb des Java-Heaps in einem direkten
+ * ByteBuffer liegen. Groe Gewichtsmatrizen belasten so nicht die
+ * Speicherbereinigung. Die Werte liegen zeilenweise als double in der
+ * Byte-Reihenfolge Little Endian hintereinander, genau so, wie writeTo sie in
+ * eine Datei schreibt. Ebenso kann eine Matrix direkt auf einem in den
+ * Speicher abgebildeten Dateibereich arbeiten.
+ *
+ * Wird die Matrix von einer MatrixArena angelegt, endet ihre Lebensdauer mit
+ * dem Schlieen der Arena. Danach wirft jeder Zugriff eine
+ * IllegalStateException.
+ *
+ * @author Roland Vlker
+ */
+public class OffHeapMatrix extends Matrix {
+
+  /**
+   * Die Byte-Reihenfolge der gespeicherten Werte.
+   */
+  public static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+  /**
+   * Der Speicherbereich der Matrix. Null, sobald die Matrix freigegeben ist.
+   */
+  private ByteBuffer bytes;
+
+  /**
+   * Die Werte der Matrix als double-Sicht auf bytes.
+   */
+  private DoubleBuffer data;
+
+
+  /**
+   * Erstellt eine Matrix der angegebenen Gre in einem eigenen direkten
+   * Speicherbereich und fllt sie mit Nullen. Der Speicher wird freigegeben,
+   * sobald die Matrix nicht mehr erreichbar ist.
+   *
+   * @param n Anzahl der Reihen.
+   * @param m Anzahl der Spalten.
+   * @throws IllegalArgumentException Falls die Matrix mehr als 2 GiB belegen
+   *                                  wrde.
+   */
+  public OffHeapMatrix(int n, int m) {
+    this(n, m, ByteBuffer.allocateDirect(byteSize(n, m)));
+  }
+
+
+  /**
+   * Erstellt eine Matrix, die auf einem vorhandenen Speicherbereich arbeitet,
+   * etwa auf einem Ausschnitt eines in den Speicher abgebildeten Dateibereichs
+   * (siehe FileChannel.map). Die Werte werden ab der aktuellen Position des
+   * Puffers gelesen und geschrieben, nicht kopiert.
+   *
+   * @param n      Anzahl der Reihen.
+   * @param m      Anzahl der Spalten.
+   * @param buffer Der Speicherbereich mit mindestens n * m * 8 Bytes ab
+   *               seiner Position.
+   * @throws IllegalArgumentException Falls der Speicherbereich zu klein ist
+   *                                  oder die Matrix mehr als 2 GiB belegen
+   *                                  wrde.
+   */
+  public OffHeapMatrix(int n, int m, ByteBuffer buffer) {
+    super(n, m, null);
+
+    int size = byteSize(n, m);
+    if (buffer.remaining() < size)
+      throw new IllegalArgumentException("Speicherbereich zu klein");
+
+    ByteBuffer slice = buffer.slice();
+    slice.limit(size);
+
+    bytes = slice.order(ORDER);
+    data = bytes.asDoubleBuffer();
+  }
+
+
+  /**
+   * Kopiert die Werte einer Matrix in einen eigenen direkten Speicherbereich.
+   *
+   * @param mat Die zu kopierende Matrix.
+   */
+  public OffHeapMatrix(Matrix mat) {
+    this(mat.getRows(), mat.getCols());
+    copy(mat);
+  }
+
+
+  /**
+   * Berechnet die Gre des Speicherbereichs einer Matrix. Ein ByteBuffer
+   * fasst hchstens Integer.MAX_VALUE Bytes, grere Matrizen werden deshalb
+   * abgelehnt, statt mit einer bergelaufenen Gre zu arbeiten.
+   *
+   * @param n Anzahl der Reihen.
+   * @param m Anzahl der Spalten.
+   * @return Die Anzahl der Bytes fr n * m double-Werte.
+   * @throws IllegalArgumentException Falls die Gre negativ ist oder nicht
+   *                                  in einen ByteBuffer passt.
+   */
+  static int byteSize(int n, int m) {
+    long size = (long) n * m * Double.BYTES;
+
+    if (n < 0 || m < 0 || size > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Matrix mit " + n + " x " + m
+          + " Eintrgen passt nicht in einen Speicherbereich (max. 2 GiB)");
+
+    return (int) size;
+  }
+
+
+  /**
+   * bernimmt die Werte einer Matrix gleicher Gre.
+   *
+   * @param mat Die Matrix mit den Werten.
+   */
+  void copy(Matrix mat) {
+    DoubleBuffer d = buffer();
+    double x[] = values(mat);
+
+    for (int k = 0; k < x.length; k++)
+      d.put(k, x[k]);
+  }
+
+
+  /**
+   * Erstellt eine Kopie in einem eigenen direkten Speicherbereich, auch wenn
+   * diese Matrix zu einer MatrixArena gehrt. Die Kopie bleibt also nach dem
+   * Schlieen der Arena gltig.
+   */
+  @Override
+  public Matrix copy() {
+    OffHeapMatrix res = new OffHeapMatrix(getRows(), getCols());
+    copyBytes(res);
+
+    return res;
+  }
+
+
+  /**
+   * Kopiert die Werte in eine andere OffHeapMatrix blockweise, ohne Umweg
+   * ber den Java-Heap.
+   */
+  @Override
+  public Matrix copyInto(Matrix out) throws Exception {
+    if (!(out instanceof OffHeapMatrix))
+      return super.copyInto(out);
+
+    if (getRows() != out.getRows() || getCols() != out.getCols())
+      throw new Exception("Dimension Error");
+
+    copyBytes((OffHeapMatrix) out);
+    return out;
+  }
+
+
+  /**
+   * Kopiert den Speicherbereich in den einer Matrix gleicher Gre.
+   *
+   * @param out Die Matrix, die die Werte aufnimmt.
+   */
+  private void copyBytes(OffHeapMatrix out) {
+    buffer(); // prfen, ob beide Matrizen noch nicht freigegeben sind
+    out.buffer();
+
+    out.bytes.duplicate().put(bytes.duplicate());
+  }
+
+
+  /**
+   * Schreibt die Werte der Matrix ohne Umweg ber den Java-Heap in einen
+   * Kanal, etwa eine Datei. Geschrieben werden rows * cols double-Werte,
+   * zeilenweise und in der Byte-Reihenfolge ORDER.
+   *
+   * @param channel Der Kanal, in den geschrieben wird.
+   * @throws IOException Falls das Schreiben fehlschlgt.
+   */
+  public void writeTo(WritableByteChannel channel) throws IOException {
+    buffer(); // prft, ob die Matrix noch nicht freigegeben ist
+    ByteBuffer b = bytes.duplicate();
+
+    while (b.hasRemaining())
+      channel.write(b);
+  }
+
+
+  /**
+   * Gibt den Speicher der Matrix frei. Weitere Zugriffe werfen eine
+   * IllegalStateException.
+   */
+  void release() {
+    bytes = null;
+    data = null;
+  }
+
+
+  /**
+   * Gibt die Werte der Matrix zurck, solange sie nicht freigegeben ist.
+   *
+   * @return Die double-Sicht auf den Speicher.
+   * @throws IllegalStateException Falls die Matrix freigegeben ist.
+   */
+  private DoubleBuffer buffer() {
+    DoubleBuffer d = data;
+
+    if (d == null)
+      throw new IllegalStateException("Matrix wurde bereits freigegeben");
+
+    return d;
+  }
+
+
+  @Override
+  public double get(int i, int j) {
+    return buffer().get(i * getCols() + j);
+  }
+
+
+  @Override
+  public void set(int i, int j, double d) {
+    buffer().put(i * getCols() + j, d);
+  }
+
+
+  @Override
+  public void fill(double d) {
+    DoubleBuffer x = buffer();
+
+    for (int k = 0; k < x.capacity(); k++)
+      x.put(k, d);
+  }
+
+
+  @Override
+  public Matrix add(Matrix mat) throws Exception {
+    if (getRows() != mat.getRows() || getCols() != mat.getCols())
+      throw new Exception("Dimension Error");
+
+    DoubleBuffer x = buffer();
+    final int m = getCols();
+
+    for (int i = 0; i < getRows(); i++) {
+      for (int j = 0; j < m; j++)
+        x.put(i * m + j, x.get(i * m + j) + mat.get(i, j));
+    }
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix mult(double lambda) {
+    DoubleBuffer x = buffer();
+
+    for (int k = 0; k < x.capacity(); k++)
+      x.put(k, x.get(k) * lambda);
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix applyInPlace(DoubleUnaryOperator f) {
+    DoubleBuffer x = buffer();
+
+    for (int k = 0; k < x.capacity(); k++)
+      x.put(k, f.applyAsDouble(x.get(k)));
+
+    return this;
+  }
+
+
+  @Override
+  public Vektor multInto(Vektor v, Vektor out, Execution mode)
+      throws Exception {
+    if (getCols() != v.getLength() || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int m = getCols();
+    DoubleBuffer w = buffer();
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), m, (from, to) -> {
+      for (int i = from; i < to; i++)
+        y[i] = Kernels.dot(w, i * m, x, 0, m);
+    });
+
+    return out;
+  }
+
+
+  @Override
+  void addWeightedRows(double x[], double y[], int from, int to) {
+    DoubleBuffer w = buffer();
+    final int m = getCols();
+
+    for (int i = 0; i < getRows(); i++)
+      Kernels.axpy(x[i], w, i * m + from, y, from, to - from);
+  }
+
+
+  @Override
+  public Vektor affineInto(Vektor v, DoubleUnaryOperator f, Vektor out,
+      Execution mode) throws Exception {
+    if (getCols() != v.getLength() + 1 || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int m = getCols();
+    final int n = m - 1;
+    DoubleBuffer w = buffer();
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), m, (from, to) -> {
+      for (int i = from; i < to; i++) {
+        int offset = i * m;
+        double sum = Kernels.dot(w, offset, x, 0, n) + w.get(offset + n);
+
+        y[i] = f.applyAsDouble(sum);
+      }
+    });
+
+    return out;
+  }
+}
@@ -0,0 +1,98 @@
+package math;
+
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Die optimierte Implementierung der Rechenoperationen des Netzes. Alle
+ * Ergebnisse werden direkt in die bergebenen Zielobjekte geschrieben, es
+ * entstehen also keine Zwischenobjekte. Die Schleifen laufen ber die
+ * zusammenhngenden Arrays der Matrizen (siehe Kernels) und werden im
+ * parallelen Modus reihenweise aufgeteilt.
+ *
+ * @author Roland Vlker
+ */
+final class OptimizedBackend implements LinearAlgebraBackend {
+
+  @Override
+  public String getName() {
+    return "optimized";
+  }
+
+
+  @Override
+  public Vektor affineInto(Matrix a, Vektor v, DoubleUnaryOperator f,
+      Vektor out, Execution mode) throws Exception {
+    return a.affineInto(v, f, out, mode);
+  }
+
+
+  @Override
+  public Vektor multInto(Vektor v, Matrix a, Vektor out, Execution mode)
+      throws Exception {
+    return Matrix.multInto(v, a, out, mode);
+  }
+
+
+  @Override
+  public void addAffineOuterProduct(Matrix a, Vektor d, Vektor x,
+      Execution mode) throws Exception {
+    a.addAffineOuterProduct(1, d, x, mode);
+  }
+
+
+  @Override
+  public Matrix affineInto(Matrix a, Matrix x, DoubleUnaryOperator f,
+      Matrix out, Execution mode) throws Exception {
+    return a.affineInto(x, f, out, mode);
+  }
+
+
+  @Override
+  public Matrix multInto(Matrix a, Matrix b, Matrix out, Execution mode)
+      throws Exception {
+    return a.multInto(b, out, mode);
+  }
+
+
+  @Override
+  public void addAffineOuterProducts(Matrix a, Matrix d, Matrix x,
+      Execution mode) throws Exception {
+    a.addAffineOuterProducts(d, x, mode);
+  }
+
+
+  @Override
+  public void addSignStep(Matrix a, Matrix steps, Matrix g) throws Exception {
+    if (a.getRows() != steps.getRows() || a.getCols() != steps.getCols()
+        || a.getRows() != g.getRows() || a.getCols() != g.getCols())
+      throw new Exception("Dimension Error");
+
+    double s[] = Matrix.values(steps);
+    double t[] = Matrix.values(g);
+
+    if (!Matrix.hasArray(a)) {
+      // Gewichte mit eigener Speicherung (z.B. FloatMatrix) einzeln ndern
+      int cols = a.getCols();
+
+      for (int i = 0; i < a.getRows(); i++) {
+        for (int j = 0; j < cols; j++) {
+          int k = i * cols + j;
+          a.set(i, j, a.get(i, j) + s[k] * MathHelper.sgn(t[k]));
+        }
+      }
+      return;
+    }
+
+    double z[] = Matrix.target(a);
+
+    for (int k = 0; k < z.length; k++)
+      z[k] += s[k] * MathHelper.sgn(t[k]);
+  }
+
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
@@ -0,0 +1,51 @@
+package math;
+
+/**
+ * Die Genauigkeit, in der die Gewichte eines neuronalen Netzes gespeichert
+ * werden.
+ * 
+ * @author Roland Vlker
+ */
+public enum Precision {
+
+  /**
+   * Doppelte Genauigkeit (double), die gewhnliche Matrix.
+   */
+  DOUBLE,
+
+  /**
+   * Einfache Genauigkeit (float), siehe FloatMatrix.
+   */
+  FLOAT;
+
+
+  /**
+   * Legt eine Matrix in dieser Genauigkeit ab. Eine SparseMatrix bleibt dabei
+   * dnn besetzt.
+   * 
+   * @param mat Die Matrix mit den Werten.
+   * @return Die Matrix selbst bei DOUBLE, eine gerundete Kopie bei FLOAT.
+   */
+  public Matrix store(Matrix mat) {
+    if (this == FLOAT && mat instanceof SparseMatrix)
+      return new SparseMatrix((SparseMatrix) mat, this);
+
+    if (this == FLOAT)
+      return new FloatMatrix(mat);
+
+    return mat;
+  }
+
+
+  /**
+   * Gibt zurck, wie viele Bytes ein Wert in dieser Genauigkeit belegt.
+   * 
+   * @return 8 bei DOUBLE, 4 bei FLOAT.
+   */
+  public int getBytes() {
+    if (this == FLOAT)
+      return Float.BYTES;
+
+    return Double.BYTES;
+  }
+}
@@ -0,0 +1,142 @@
+package math;
+
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Die Referenzimplementierung der Rechenoperationen des Netzes. Sie rechnet
+ * so geradlinig wie mglich: Der Eingabevektor wird um eine 1 erweitert,
+ * Zwischenergebnisse werden als neue Vektoren und Matrizen erzeugt und erst
+ * am Ende in das Ziel kopiert. Sie ist langsamer als OptimizedBackend, dient
+ * aber als Vergleichsmastab fr dessen Ergebnisse.
+ *
+ * @author Roland Vlker
+ */
+final class ReferenceBackend implements LinearAlgebraBackend {
+
+  @Override
+  public String getName() {
+    return "reference";
+  }
+
+
+  @Override
+  public Vektor affineInto(Matrix a, Vektor v, DoubleUnaryOperator f,
+      Vektor out, Execution mode) throws Exception {
+    Vektor res = Matrix.mult(a, extend(v)).apply(f);
+
+    copy(res, out);
+    return out;
+  }
+
+
+  @Override
+  public Vektor multInto(Vektor v, Matrix a, Vektor out, Execution mode)
+      throws Exception {
+    Vektor res = new Vektor(a.getCols());
+
+    for (int j = 0; j < a.getCols(); j++) {
+      double sum = 0;
+
+      for (int i = 0; i < a.getRows(); i++)
+        sum += v.get(i) * a.get(i, j);
+
+      res.set(j, sum);
+    }
+
+    copy(res, out);
+    return out;
+  }
+
+
+  @Override
+  public void addAffineOuterProduct(Matrix a, Vektor d, Vektor x,
+      Execution mode) throws Exception {
+    a.add(Vektor.dyadicProduct(d, extend(x)));
+  }
+
+
+  @Override
+  public Matrix affineInto(Matrix a, Matrix x, DoubleUnaryOperator f,
+      Matrix out, Execution mode) throws Exception {
+    if (out.getRows() != x.getRows())
+      throw new Exception("Dimension Error");
+
+    for (int p = 0; p < x.getRows(); p++) {
+      Vektor res = new Vektor(out.getCols());
+
+      affineInto(a, x.extractRow(p), f, res, mode);
+      out.setRow(p, res);
+    }
+
+    return out;
+  }
+
+
+  @Override
+  public Matrix multInto(Matrix a, Matrix b, Matrix out, Execution mode)
+      throws Exception {
+    if (out.getRows() != a.getRows())
+      throw new Exception("Dimension Error");
+
+    for (int p = 0; p < a.getRows(); p++) {
+      Vektor res = new Vektor(out.getCols());
+
+      multInto(a.extractRow(p), b, res, mode);
+      out.setRow(p, res);
+    }
+
+    return out;
+  }
+
+
+  @Override
+  public void addAffineOuterProducts(Matrix a, Matrix d, Matrix x,
+      Execution mode) throws Exception {
+    if (d.getRows() != x.getRows())
+      throw new Exception("Dimension Error");
+
+    for (int p = 0; p < d.getRows(); p++)
+      addAffineOuterProduct(a, d.extractRow(p), x.extractRow(p), mode);
+  }
+
+
+  @Override
+  public void addSignStep(Matrix a, Matrix steps, Matrix g) throws Exception {
+    a.add(Matrix.coordinateMult(steps, g.apply(MathHelper::sgn)));
+  }
+
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+
+
+  /**
+   * Erweitert einen Vektor um eine 1 am Ende.
+   *
+   * @param v Der Vektor.
+   * @return Einen neuen, um eins lngeren Vektor.
+   */
+  private static Vektor extend(Vektor v) {
+    Vektor res = new Vektor(v);
+    res.concat(new Vektor(1.0));
+    return res;
+  }
+
+
+  /**
+   * Kopiert die Werte eines Vektors in einen anderen gleicher Lnge.
+   *
+   * @param v   Der Quellvektor.
+   * @param out Der Zielvektor.
+   * @throws Exception Sollten die Lngen nicht bereinstimmen.
+   */
+  private static void copy(Vektor v, Vektor out) throws Exception {
+    if (v.getLength() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    System.arraycopy(v.getData(), 0, out.getData(), 0, v.getLength());
+  }
+}
@@ -0,0 +1,57 @@
+package math;
+
+/**
+ * Die Rechenkerne als gewhnliche Schleifen. Sie laufen auf jeder JVM und
+ * sind die Rckfallebene, falls die Vector API nicht zur Verfgung steht
+ * (siehe Kernels). Summen werden streng der Reihe nach gebildet.
+ *
+ * Die komponentenweisen Schleifen scale, add und mult bersetzt der
+ * JIT-Compiler selbst in SIMD-Befehle, SimdKernels bernimmt sie deshalb
+ * (siehe KernelBenchmark).
+ *
+ * @author Roland Vlker
+ */
+class ScalarKernels implements ArrayKernels {
+
+  @Override
+  public double dot(double x[], int xOff, double y[], int yOff, int n) {
+    double sum = 0;
+
+    for (int i = 0; i < n; i++)
+      sum += x[xOff + i] * y[yOff + i];
+
+    return sum;
+  }
+
+
+  @Override
+  public void axpy(double alpha, double x[], int xOff, double y[], int yOff,
+      int n) {
+    for (int i = 0; i < n; i++)
+      y[yOff + i] += alpha * x[xOff + i];
+  }
+
+
+  @Override
+  public void scale(double alpha, double x[], int xOff, double y[], int yOff,
+      int n) {
+    for (int i = 0; i < n; i++)
+      y[yOff + i] = alpha * x[xOff + i];
+  }
+
+
+  @Override
+  public void add(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n) {
+    for (int i = 0; i < n; i++)
+      out[outOff + i] = x[xOff + i] + y[yOff + i];
+  }
+
+
+  @Override
+  public void mult(double x[], int xOff, double y[], int yOff, double out[],
+      int outOff, int n) {
+    for (int i = 0; i < n; i++)
+      out[outOff + i] = x[xOff + i] * y[yOff + i];
+  }
+}
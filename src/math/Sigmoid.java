@@ -0,0 +1,155 @@
+package math;
+
+
+/**
+ * Verschiedene Berechnungsarten der Sigmoid-Funktion x -> 1 / (1 + exp(-x)),
+ * der Aktivierungsfunktion der Neuronen. Die Nherungen kommen ohne Math.exp
+ * aus und sind entsprechend schneller. Ihr grter absoluter Fehler liegt
+ * jeweils weit unter dem, was beim Training der Gewichte ins Gewicht fllt
+ * (siehe getMaxError). Alle Berechnungsarten teilen sich die Ableitung
+ * y * (1 - y).
+ *
+ * @author Roland Vlker
+ */
+public enum Sigmoid implements Activation {
+
+  /**
+   * Die exakte Berechnung ber Math.exp (siehe MathHelper.sigmoid).
+   */
+  EXACT(0) {
+    @Override
+    public double applyAsDouble(double x) {
+      return MathHelper.sigmoid(x);
+    }
+  },
+
+  /**
+   * Lineare Interpolation in einer Wertetabelle fr 0 <= x < 16 mit der
+   * Schrittweite 1/64. Negative Werte werden ber sigmoid(-x) = 1 -
+   * sigmoid(x) berechnet, ab |x| >= 16 ist das Ergebnis 0 bzw. 1. Der
+   * grte absolute Fehler betrgt 3e-6.
+   */
+  TABLE(3e-6) {
+    @Override
+    public double applyAsDouble(double x) {
+      double a = Math.abs(x);
+
+      if (a >= TABLE_LIMIT)
+        return x > 0 ? 1 : 0;
+
+      double p = a * TABLE_STEPS;
+      int i = (int) p;
+      double r = TABLE_VALUES[i] + (TABLE_VALUES[i + 1] - TABLE_VALUES[i])
+          * (p - i);
+
+      return x < 0 ? 1 - r : r;
+    }
+  },
+
+  /**
+   * Die Pad-Nherung vom Grad [7/6] des Tangens hyperbolicus, denn es gilt
+   * sigmoid(x) = (1 + tanh(x / 2)) / 2. Ab |x| >= 10 ist das Ergebnis 0 bzw.
+   * 1. Der grte absolute Fehler betrgt 5e-5.
+   */
+  RATIONAL(5e-5) {
+    @Override
+    public double applyAsDouble(double x) {
+      if (x >= 10)
+        return 1;
+      if (x <= -10)
+        return 0;
+
+      double t = x / 2;
+      double t2 = t * t;
+      double p = t * (135135 + t2 * (17325 + t2 * (378 + t2)));
+      double q = 135135 + t2 * (62370 + t2 * (3150 + t2 * 28));
+      double th = Math.max(-1, Math.min(1, p / q));
+
+      return 0.5 + 0.5 * th;
+    }
+  };
+
+  /**
+   * Ab diesem Betrag liefert TABLE 0 bzw. 1.
+   */
+  private static final double TABLE_LIMIT = 16;
+
+  /**
+   * Die Anzahl der Tabellenwerte pro Einheit.
+   */
+  private static final int TABLE_STEPS = 64;
+
+  /**
+   * Die Werte der Sigmoid-Funktion an den Stellen i / TABLE_STEPS.
+   */
+  private static final double TABLE_VALUES[] = new double[(int) (TABLE_LIMIT
+      * TABLE_STEPS) + 1];
+
+  static {
+    for (int i = 0; i < TABLE_VALUES.length; i++)
+      TABLE_VALUES[i] = MathHelper.sigmoid((double) i / TABLE_STEPS);
+  }
+
+  /**
+   * Der grte absolute Fehler gegenber der exakten Berechnung.
+   */
+  private final double maxError;
+
+
+  private Sigmoid(double maxError) {
+    this.maxError = maxError;
+  }
+
+
+  /**
+   * Gibt den grten absoluten Fehler dieser Berechnungsart gegenber der
+   * exakten Sigmoid-Funktion zurck.
+   *
+   * @return Der grte absolute Fehler.
+   */
+  public double getMaxError() {
+    return maxError;
+  }
+
+
+  /**
+   * Alle Berechnungsarten heien "sigmoid" (siehe Activation.forName).
+   */
+  @Override
+  public String getName() {
+    return "sigmoid";
+  }
+
+
+  @Override
+  public double derivative(double y) {
+    return y * (1 - y);
+  }
+
+
+  @Override
+  public void derivativeInto(double y[], int yOff, double g[], int gOff,
+      double out[], int outOff, int n) {
+    for (int k = 0; k < n; k++) {
+      double v = y[yOff + k];
+      out[outOff + k] = g[gOff + k] * v * (1 - v);
+    }
+  }
+
+
+  /**
+   * Whlt die schnellste Berechnungsart, deren grter Fehler die angegebene
+   * Schranke nicht berschreitet.
+   *
+   * @param maxError Die Fehlerschranke.
+   * @return RATIONAL, TABLE oder EXACT.
+   */
+  public static Sigmoid forMaxError(double maxError) {
+    if (maxError >= RATIONAL.maxError)
+      return RATIONAL;
+    if (maxError >= TABLE.maxError)
+      return TABLE;
+
+    return EXACT;
+  }
+}
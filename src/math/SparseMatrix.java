@@ -0,0 +1,580 @@
+package math;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+
+/**
+ * Eine dnn besetzte Matrix im CSR-Format (compressed sparse row). Es werden
+ * nur die Eintrge gespeichert, die beim Anlegen nicht vernachlssigbar klein
+ * waren, zeilenweise mit ihren Spaltenindizes. Ein Produkt mit einem Vektor
+ * kostet so nur so viele Multiplikationen, wie Eintrge gespeichert sind.
+ *
+ * Die Besetzungsstruktur ist fest: Entfernte Eintrge sind 0 und bleiben es
+ * auch. Schreibzugriffe auf sie (set, add, fill, ...) werden ignoriert. So
+ * kann ein ausgednntes Netz weitertrainiert werden, ohne dass entfernte
+ * Verbindungen wieder entstehen.
+ *
+ * Die Werte werden wie bei Matrix in doppelter oder wie bei FloatMatrix in
+ * einfacher Genauigkeit gespeichert (siehe Precision). Ein Eintrag belegt
+ * samt Spaltenindex also 12 bzw. 8 Bytes, gegenber 8 bzw. 4 Bytes in der
+ * dicht besetzten Matrix. Weniger Speicher braucht die dnn besetzte Matrix
+ * daher erst, wenn mehr als ein Drittel bzw. die Hlfte der Eintrge entfllt
+ * (siehe getByteSize).
+ *
+ * Mit writeTo und SparseMatrix(int, int, ByteBuffer, Precision) lsst sich
+ * die Matrix samt Besetzungsstruktur speichern und wieder laden:
+ *
+ * <pre>
+ * int    Anzahl k der gespeicherten Eintrge
+ * int    rowStart (rows + 1 Werte), columns (k Werte), ggf. eine 0, damit
+ *        die Anzahl der int-Werte gerade ist
+ * double values (k Werte) bzw. float values (k Werte), ggf. gefolgt von
+ *        einer 0, damit die Anzahl der float-Werte gerade ist
+ * </pre>
+ *
+ * in der Byte-Reihenfolge OffHeapMatrix.ORDER. Die Lnge ist so immer durch 8
+ * teilbar.
+ *
+ * @author Roland Vlker
+ */
+public class SparseMatrix extends Matrix {
+
+  /**
+   * Der Beginn jeder Reihe in columns und values. Die Eintrge der Reihe i
+   * liegen an den Stellen rowStart[i] bis (ausschlielich) rowStart[i + 1].
+   */
+  private final int rowStart[];
+
+  /**
+   * Die Spaltenindizes der gespeicherten Eintrge, innerhalb einer Reihe
+   * aufsteigend.
+   */
+  private final int columns[];
+
+  /**
+   * Die Werte der gespeicherten Eintrge in doppelter Genauigkeit oder null,
+   * falls sie in floats liegen.
+   */
+  private final double values[];
+
+  /**
+   * Die Werte der gespeicherten Eintrge in einfacher Genauigkeit oder null,
+   * falls sie in values liegen.
+   */
+  private final float floats[];
+
+
+  /**
+   * Erstellt eine dnn besetzte Kopie einer Matrix in doppelter Genauigkeit.
+   * bernommen werden nur die Eintrge, deren Betrag mindestens threshold
+   * ist.
+   *
+   * @param mat       Die zu kopierende Matrix.
+   * @param threshold Die Schranke, unterhalb derer Eintrge entfernt werden.
+   */
+  public SparseMatrix(Matrix mat, double threshold) {
+    this(mat, threshold, Precision.DOUBLE);
+  }
+
+
+  /**
+   * Erstellt eine dnn besetzte Kopie einer Matrix. bernommen werden nur die
+   * Eintrge, deren Betrag mindestens threshold ist.
+   *
+   * @param mat       Die zu kopierende Matrix.
+   * @param threshold Die Schranke, unterhalb derer Eintrge entfernt werden.
+   * @param precision Die Genauigkeit, in der die Werte gespeichert werden.
+   */
+  public SparseMatrix(Matrix mat, double threshold, Precision precision) {
+    super(mat.getRows(), mat.getCols(), null);
+
+    int n = mat.getRows();
+    int m = mat.getCols();
+    int count = 0;
+
+    for (int i = 0; i < n; i++) {
+      for (int j = 0; j < m; j++) {
+        if (Math.abs(mat.get(i, j)) >= threshold)
+          count++;
+      }
+    }
+
+    rowStart = new int[n + 1];
+    columns = new int[count];
+    values = precision == Precision.DOUBLE ? new double[count] : null;
+    floats = precision == Precision.FLOAT ? new float[count] : null;
+
+    int k = 0;
+    for (int i = 0; i < n; i++) {
+      rowStart[i] = k;
+
+      for (int j = 0; j < m; j++) {
+        double d = mat.get(i, j);
+
+        if (Math.abs(d) >= threshold) {
+          columns[k] = j;
+          setValue(k, d);
+          k++;
+        }
+      }
+    }
+    rowStart[n] = k;
+  }
+
+
+  /**
+   * Liest eine Matrix in doppelter Genauigkeit aus einem Speicherbereich
+   * (siehe SparseMatrix(int, int, ByteBuffer, Precision)).
+   *
+   * @param n      Anzahl der Reihen.
+   * @param m      Anzahl der Spalten.
+   * @param buffer Der Speicherbereich, gelesen ab seiner Position.
+   * @throws IllegalArgumentException Falls der Speicherbereich zu klein oder
+   *                                  die Besetzungsstruktur ungltig ist.
+   */
+  public SparseMatrix(int n, int m, ByteBuffer buffer) {
+    this(n, m, buffer, Precision.DOUBLE);
+  }
+
+
+  /**
+   * Liest eine Matrix samt Besetzungsstruktur aus einem Speicherbereich, wie
+   * writeTo sie schreibt (siehe Klassenbeschreibung). Die Werte werden
+   * kopiert, die Position des Puffers steht danach hinter der Matrix.
+   *
+   * @param n         Anzahl der Reihen.
+   * @param m         Anzahl der Spalten.
+   * @param buffer    Der Speicherbereich, gelesen ab seiner Position.
+   * @param precision Die Genauigkeit, in der die Werte geschrieben wurden.
+   * @throws IllegalArgumentException Falls der Speicherbereich zu klein oder
+   *                                  die Besetzungsstruktur ungltig ist.
+   */
+  public SparseMatrix(int n, int m, ByteBuffer buffer, Precision precision) {
+    super(n, m, null);
+
+    ByteBuffer b = buffer.duplicate().order(OffHeapMatrix.ORDER);
+    int count = b.getInt();
+
+    if (count < 0 || count > (long) n * m)
+      throw new IllegalArgumentException("Ungltige Besetzungsstruktur");
+    if (byteSize(n, count, precision) - Integer.BYTES > b.remaining())
+      throw new IllegalArgumentException("Speicherbereich zu klein");
+
+    rowStart = new int[n + 1];
+    columns = new int[count];
+    values = precision == Precision.DOUBLE ? new double[count] : null;
+    floats = precision == Precision.FLOAT ? new float[count] : null;
+
+    b.asIntBuffer().get(rowStart);
+    b.position(b.position() + rowStart.length * Integer.BYTES);
+    b.asIntBuffer().get(columns);
+    b.position(b.position() + columns.length * Integer.BYTES
+        + intPadding(n, count));
+
+    if (floats != null)
+      b.asFloatBuffer().get(floats);
+    else
+      b.asDoubleBuffer().get(values);
+    b.position(b.position() + (int) valueBytes(count, precision));
+
+    checkStructure();
+    buffer.position(b.position());
+  }
+
+
+  /**
+   * Erstellt eine Kopie mit derselben Besetzungsstruktur, deren Werte in der
+   * angegebenen Genauigkeit gespeichert werden. Da sich die Struktur nie
+   * ndert, werden rowStart und columns mitbenutzt, kopiert werden nur die
+   * Werte.
+   *
+   * @param mat       Die zu kopierende Matrix.
+   * @param precision Die Genauigkeit der Kopie.
+   */
+  public SparseMatrix(SparseMatrix mat, Precision precision) {
+    super(mat.getRows(), mat.getCols(), null);
+
+    int count = mat.getNonZeros();
+
+    rowStart = mat.rowStart;
+    columns = mat.columns;
+    values = precision == Precision.DOUBLE ? new double[count] : null;
+    floats = precision == Precision.FLOAT ? new float[count] : null;
+
+    for (int k = 0; k < count; k++)
+      setValue(k, mat.value(k));
+  }
+
+
+  /**
+   * Prft, ob rowStart und columns eine gltige Besetzungsstruktur bilden:
+   * Die Reihen folgen lckenlos aufeinander, und innerhalb jeder Reihe sind
+   * die Spaltenindizes aufsteigend und kleiner als die Spaltenanzahl.
+   *
+   * @throws IllegalArgumentException Falls die Struktur ungltig ist.
+   */
+  private void checkStructure() {
+    boolean valid = rowStart[0] == 0
+        && rowStart[getRows()] == columns.length;
+
+    for (int i = 0; valid && i < getRows(); i++) {
+      valid = rowStart[i] <= rowStart[i + 1];
+
+      for (int k = rowStart[i]; valid && k < rowStart[i + 1]; k++)
+        valid = columns[k] >= 0 && columns[k] < getCols()
+            && (k == rowStart[i] || columns[k - 1] < columns[k]);
+    }
+
+    if (!valid)
+      throw new IllegalArgumentException("Ungltige Besetzungsstruktur");
+  }
+
+
+  /**
+   * Schreibt die Matrix samt Besetzungsstruktur in einen Kanal, etwa eine
+   * Datei (siehe Klassenbeschreibung).
+   *
+   * @param channel Der Kanal, in den geschrieben wird.
+   * @throws IOException Falls das Schreiben fehlschlgt.
+   */
+  public void writeTo(WritableByteChannel channel) throws IOException {
+    int count = getNonZeros();
+    ByteBuffer b = ByteBuffer
+        .allocate(byteSize(getRows(), count, getPrecision()))
+        .order(OffHeapMatrix.ORDER);
+
+    b.putInt(count);
+    b.asIntBuffer().put(rowStart).put(columns);
+    b.position(b.position() + (rowStart.length + columns.length)
+        * Integer.BYTES + intPadding(getRows(), count));
+
+    if (floats != null)
+      b.asFloatBuffer().put(floats);
+    else
+      b.asDoubleBuffer().put(values);
+    b.position(b.limit());
+
+    b.flip();
+    while (b.hasRemaining())
+      channel.write(b);
+  }
+
+
+  /**
+   * Die Anzahl der Bytes, die writeTo fr eine Matrix schreibt.
+   *
+   * @param n         Anzahl der Reihen.
+   * @param count     Anzahl der gespeicherten Eintrge.
+   * @param precision Die Genauigkeit der Werte.
+   * @return Die Anzahl der Bytes.
+   * @throws IllegalArgumentException Falls die Matrix mehr als 2 GiB belegen
+   *                                  wrde.
+   */
+  private static int byteSize(int n, int count, Precision precision) {
+    long size = (2L + n + count) * Integer.BYTES + intPadding(n, count)
+        + valueBytes(count, precision);
+
+    if (size > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Matrix zu gro (max. 2 GiB)");
+
+    return (int) size;
+  }
+
+
+  /**
+   * Die Fllbytes hinter columns, damit values an einer durch 8 teilbaren
+   * Position beginnt.
+   *
+   * @param n     Anzahl der Reihen.
+   * @param count Anzahl der gespeicherten Eintrge.
+   * @return 0 oder 4.
+   */
+  private static int intPadding(int n, int count) {
+    return (int) (((long) n + count) % 2) * Integer.BYTES;
+  }
+
+
+  /**
+   * Die Anzahl der Bytes, die writeTo fr die Werte schreibt, bei einfacher
+   * Genauigkeit samt Fllbytes auf eine durch 8 teilbare Lnge.
+   *
+   * @param count     Anzahl der gespeicherten Eintrge.
+   * @param precision Die Genauigkeit der Werte.
+   * @return Die Anzahl der Bytes.
+   */
+  private static long valueBytes(int count, Precision precision) {
+    if (precision == Precision.FLOAT)
+      return (count + count % 2L) * Float.BYTES;
+
+    return (long) count * Double.BYTES;
+  }
+
+
+  /**
+   * Gibt die Anzahl der gespeicherten Eintrge zurck.
+   *
+   * @return Die Anzahl der gespeicherten Eintrge.
+   */
+  public int getNonZeros() {
+    return columns.length;
+  }
+
+
+  /**
+   * Gibt den Anteil der entfernten Eintrge an allen Eintrgen zurck.
+   *
+   * @return Ein Wert zwischen 0 (voll besetzt) und 1 (leer).
+   */
+  public double getSparsity() {
+    return 1 - (double) columns.length / ((long) getRows() * getCols());
+  }
+
+
+  /**
+   * Gibt die Genauigkeit zurck, in der die Werte gespeichert sind.
+   *
+   * @return Die Genauigkeit der Werte.
+   */
+  public Precision getPrecision() {
+    return floats != null ? Precision.FLOAT : Precision.DOUBLE;
+  }
+
+
+  /**
+   * Gibt den Speicherbedarf der Werte und der Besetzungsstruktur zurck.
+   *
+   * @return Der Speicherbedarf in Bytes.
+   */
+  public long getByteSize() {
+    return (long) (rowStart.length + columns.length) * Integer.BYTES
+        + (long) columns.length * getPrecision().getBytes();
+  }
+
+
+  /**
+   * Sucht die Stelle eines Eintrags in columns und values.
+   *
+   * @param i Die Reihe.
+   * @param j Die Spalte.
+   * @return Die Stelle des Eintrags oder einen negativen Wert, falls er nicht
+   *         gespeichert ist.
+   */
+  private int find(int i, int j) {
+    return Arrays.binarySearch(columns, rowStart[i], rowStart[i + 1], j);
+  }
+
+
+  /**
+   * Liest einen gespeicherten Wert.
+   *
+   * @param k Die Stelle des Eintrags.
+   * @return Der Wert.
+   */
+  private double value(int k) {
+    return floats != null ? floats[k] : values[k];
+  }
+
+
+  /**
+   * Schreibt einen gespeicherten Wert, bei einfacher Genauigkeit gerundet.
+   *
+   * @param k Die Stelle des Eintrags.
+   * @param d Der Wert.
+   */
+  private void setValue(int k, double d) {
+    if (floats != null)
+      floats[k] = (float) d;
+    else
+      values[k] = d;
+  }
+
+
+  @Override
+  public Matrix copy() {
+    return new SparseMatrix(this, getPrecision());
+  }
+
+
+  /**
+   * Kopiert nur die gespeicherten Werte, falls out eine SparseMatrix mit
+   * derselben Besetzungsstruktur und Genauigkeit ist (siehe copy).
+   */
+  @Override
+  public Matrix copyInto(Matrix out) throws Exception {
+    if (!(out instanceof SparseMatrix))
+      return super.copyInto(out);
+
+    SparseMatrix res = (SparseMatrix) out;
+
+    if (res.rowStart != rowStart || res.columns != columns)
+      throw new Exception("Dimension Error");
+
+    if (floats != null && res.floats != null)
+      System.arraycopy(floats, 0, res.floats, 0, floats.length);
+    else if (values != null && res.values != null)
+      System.arraycopy(values, 0, res.values, 0, values.length);
+    else {
+      for (int k = 0; k < columns.length; k++)
+        res.setValue(k, value(k));
+    }
+
+    return out;
+  }
+
+
+  @Override
+  public double get(int i, int j) {
+    int k = find(i, j);
+    return k < 0 ? 0 : value(k);
+  }
+
+
+  @Override
+  public void set(int i, int j, double d) {
+    int k = find(i, j);
+
+    if (k >= 0)
+      setValue(k, d);
+  }
+
+
+  @Override
+  public void fill(double d) {
+    if (floats != null)
+      Arrays.fill(floats, (float) d);
+    else
+      Arrays.fill(values, d);
+  }
+
+
+  @Override
+  public Matrix add(Matrix mat) throws Exception {
+    if (getRows() != mat.getRows() || getCols() != mat.getCols())
+      throw new Exception("Dimension Error");
+
+    for (int i = 0; i < getRows(); i++) {
+      for (int k = rowStart[i]; k < rowStart[i + 1]; k++)
+        setValue(k, value(k) + mat.get(i, columns[k]));
+    }
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix mult(double lambda) {
+    for (int k = 0; k < columns.length; k++)
+      setValue(k, value(k) * lambda);
+
+    return this;
+  }
+
+
+  @Override
+  public Matrix applyInPlace(DoubleUnaryOperator f) {
+    for (int k = 0; k < columns.length; k++)
+      setValue(k, f.applyAsDouble(value(k)));
+
+    return this;
+  }
+
+
+  @Override
+  public Vektor multInto(Vektor v, Vektor out, Execution mode)
+      throws Exception {
+    if (getCols() != v.getLength() || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), averageRowLength(), (from, to) -> {
+      for (int i = from; i < to; i++)
+        y[i] = dot(i, x, getCols());
+    });
+
+    return out;
+  }
+
+
+  @Override
+  void addWeightedRows(double x[], double y[], int from, int to) {
+    for (int i = 0; i < getRows(); i++) {
+      double c = x[i];
+
+      for (int k = rowStart[i]; k < rowStart[i + 1]; k++) {
+        int j = columns[k];
+
+        if (j >= from && j < to)
+          y[j] += c * value(k);
+      }
+    }
+  }
+
+
+  @Override
+  public Vektor affineInto(Vektor v, DoubleUnaryOperator f, Vektor out,
+      Execution mode) throws Exception {
+    if (getCols() != v.getLength() + 1 || getRows() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    final int n = getCols() - 1;
+    double x[] = v.getData();
+    double y[] = out.getData();
+
+    mode.forRows(getRows(), averageRowLength(), (from, to) -> {
+      for (int i = from; i < to; i++) {
+        double sum = dot(i, x, n);
+
+        // Die Biasspalte ist, falls gespeichert, der letzte Eintrag der Reihe
+        int last = rowStart[i + 1] - 1;
+        if (last >= rowStart[i] && columns[last] == n)
+          sum += value(last);
+
+        y[i] = f.applyAsDouble(sum);
+      }
+    });
+
+    return out;
+  }
+
+
+  /**
+   * Berechnet das Skalarprodukt einer Reihe mit einem Vektor. Bercksichtigt
+   * werden nur die Eintrge mit einem Spaltenindex kleiner als n.
+   *
+   * @param i Die Reihe.
+   * @param x Die Werte des Vektors.
+   * @param n Die Anzahl der bercksichtigten Spalten.
+   * @return Das Skalarprodukt.
+   */
+  private double dot(int i, double x[], int n) {
+    double sum = 0;
+
+    // Zwei Schleifen, damit nicht fr jeden Eintrag verzweigt wird
+    if (floats != null) {
+      for (int k = rowStart[i]; k < rowStart[i + 1] && columns[k] < n; k++)
+        sum += floats[k] * x[columns[k]];
+    } else {
+      for (int k = rowStart[i]; k < rowStart[i + 1] && columns[k] < n; k++)
+        sum += values[k] * x[columns[k]];
+    }
+
+    return sum;
+  }
+
+
+  /**
+   * Die durchschnittliche Anzahl gespeicherter Eintrge pro Reihe, als Ma
+   * fr die Arbeit beim Aufteilen auf mehrere Threads.
+   *
+   * @return Die durchschnittliche Reihenlnge, mindestens 1.
+   */
+  private long averageRowLength() {
+    return Math.max(1, columns.length / Math.max(1, getRows()));
+  }
+}
@@ -0,0 +1,110 @@
+package math;
+
+import java.util.Locale;
+
+
+/**
+ * Die Aktivierungsfunktionen auer der Sigmoid-Funktion (siehe Activation).
+ *
+ * @author Roland Vlker
+ */
+enum StandardActivation implements Activation {
+
+  TANH {
+    @Override
+    public double applyAsDouble(double x) {
+      return Math.tanh(x);
+    }
+
+
+    @Override
+    public double derivative(double y) {
+      return 1 - y * y;
+    }
+  },
+
+  RELU {
+    @Override
+    public double applyAsDouble(double x) {
+      return x > 0 ? x : 0;
+    }
+
+
+    @Override
+    public double derivative(double y) {
+      return y > 0 ? 1 : 0;
+    }
+  },
+
+  LEAKY_RELU {
+    @Override
+    public double applyAsDouble(double x) {
+      return x > 0 ? x : LEAK * x;
+    }
+
+
+    @Override
+    public double derivative(double y) {
+      return y > 0 ? 1 : LEAK;
+    }
+  },
+
+  LINEAR {
+    @Override
+    public double applyAsDouble(double x) {
+      return x;
+    }
+
+
+    @Override
+    public double derivative(double y) {
+      return 1;
+    }
+  };
+
+  /**
+   * Die Steigung von LEAKY_RELU fr negative Werte.
+   */
+  private static final double LEAK = 0.01;
+
+
+  /**
+   * Der Name der Konstante in Kleinbuchstaben. Locale.ROOT sorgt dafr, dass
+   * etwa unter trkischer Spracheinstellung das I in LINEAR nicht zum
+   * punktlosen i wird, denn der Name wird auch in gespeicherte Netze
+   * geschrieben (siehe net.Checkpoint).
+   */
+  @Override
+  public String getName() {
+    return name().toLowerCase(Locale.ROOT);
+  }
+
+
+  /**
+   * Wie Activation.derivativeInto, aber mit einer eigenen Schleife pro
+   * Funktion, damit die Ableitung nicht fr jeden Eintrag ber einen
+   * virtuellen Aufruf berechnet wird.
+   */
+  @Override
+  public void derivativeInto(double y[], int yOff, double g[], int gOff,
+      double out[], int outOff, int n) {
+    switch (this) {
+    case TANH:
+      for (int k = 0; k < n; k++) {
+        double v = y[yOff + k];
+        out[outOff + k] = g[gOff + k] * (1 - v * v);
+      }
+      break;
+    case RELU:
+      for (int k = 0; k < n; k++)
+        out[outOff + k] = y[yOff + k] > 0 ? g[gOff + k] : 0;
+      break;
+    case LEAKY_RELU:
+      for (int k = 0; k < n; k++)
+        out[outOff + k] = y[yOff + k] > 0 ? g[gOff + k] : LEAK * g[gOff + k];
+      break;
+    default:
+      System.arraycopy(g, gOff, out, outOff, n);
+    }
+  }
+}
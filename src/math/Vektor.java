@@ -1,7 +1,8 @@
 package math;
 
 import java.util.List;
-import java.util.function.Function;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
 
 
 public class Vektor {
@@ -88,17 +89,61 @@ public class Vektor {
   }
 
 
-  public Vektor apply(Function<Double, Double> f) {
-    Vektor res = new Vektor(this);
+  /**
+   * Wendet eine Funktion auf alle Eintrge an. Die Funktion arbeitet direkt
+   * mit primitiven double-Werten, es werden also keine Double-Objekte
+   * erzeugt.
+   * 
+   * @param f Die anzuwendende Funktion.
+   * @return Einen neuen Vektor mit den Ergebnissen.
+   */
+  public Vektor apply(DoubleUnaryOperator f) {
+    Vektor res = new Vektor(data.length);
 
     for (int i = 0; i < data.length; i++) {
-      res.data[i] = f.apply(data[i]);
+      res.data[i] = f.applyAsDouble(data[i]);
     }
 
     return res;
   }
 
 
+  /**
+   * Wendet eine Funktion auf alle Eintrge an und berschreibt diese mit den
+   * Ergebnissen.
+   * 
+   * @param f Die anzuwendende Funktion.
+   * @return Diesen Vektor.
+   */
+  public Vektor applyInPlace(DoubleUnaryOperator f) {
+    for (int i = 0; i < data.length; i++)
+      data[i] = f.applyAsDouble(data[i]);
+
+    return this;
+  }
+
+
+  /**
+   * Wendet eine Funktion auf alle Eintrge an und schreibt die Ergebnisse in
+   * einen vorhandenen Vektor. Dieser darf auch der Vektor selbst sein.
+   * 
+   * @param f   Die anzuwendende Funktion.
+   * @param out Der Vektor, der die Ergebnisse aufnimmt.
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
+   */
+  public Vektor applyInto(DoubleUnaryOperator f, Vektor out)
+      throws Exception {
+    if (out.getLength() != data.length)
+      throw new Exception("Dimension Error");
+
+    for (int i = 0; i < data.length; i++)
+      out.data[i] = f.applyAsDouble(data[i]);
+
+    return out;
+  }
+
+
   @Override
   public String toString() {
     String res = "(";
@@ -112,13 +157,7 @@ public class Vektor {
 
 
   public double norm2() {
-    double res = 0;
-
-    for (int i = 0; i < data.length; i++) {
-      res += data[i] * data[i];
-    }
-
-    return res;
+    return Kernels.dot(data, 0, data, 0, data.length);
   }
 
 
@@ -126,9 +165,7 @@ public class Vektor {
     if (v.getLength() != data.length)
       throw new Exception("Dimension Error");
 
-    for (int i = 0; i < data.length; i++)
-      data[i] += v.data[i];
-
+    Kernels.add(data, 0, v.data, 0, data, 0, data.length);
     return this;
   }
 
@@ -145,9 +182,7 @@ public class Vektor {
 
 
   public Vektor mult(double lambda) {
-    for (int i = 0; i < data.length; i++)
-      data[i] *= lambda;
-
+    Kernels.scale(lambda, data, 0, data, 0, data.length);
     return this;
   }
 
@@ -159,12 +194,7 @@ public class Vektor {
     if (v.getLength() != data.length)
       throw new Exception("Dimension Error");
 
-    double sum = 0;
-
-    for (int i = 0; i < data.length; i++)
-      sum += data[i] * v.get(i);
-
-    return sum;
+    return Kernels.dot(data, 0, v.data, 0, data.length);
   }
 
 
@@ -175,100 +205,181 @@ public class Vektor {
     if (v.getLength() != data.length)
       throw new Exception("Dimension Error");
 
-    for (int i = 0; i < data.length; i++)
-      data[i] *= v.get(i);
-
+    Kernels.mult(data, 0, v.data, 0, data, 0, data.length);
     return this;
   }
 
 
   public Matrix dyadicProduct(Vektor v) {
-    Matrix res = new Matrix(this.getLength(), v.getLength());
+    return dyadicProduct(this, v);
+  }
 
-    for (int i = 0; i < this.getLength(); i++)
-      for (int j = 0; j < v.getLength(); j++)
-        res.set(i, j, this.get(i) * v.get(j));
 
-    return res;
+  public static Vektor add(Vektor a, Vektor b) throws Exception {
+    return addInto(a, b, new Vektor(a.getLength()));
   }
 
 
-  public static Vektor add(Vektor a, Vektor b) throws Exception {
-    if (a.getLength() != b.getLength())
-      throw new Exception("Dimension Error");
+  public static Vektor subtract(Vektor a, Vektor b) throws Exception {
+    return subtractInto(a, b, new Vektor(a.getLength()));
+  }
 
-    Vektor v = new Vektor(a);
 
-    for (int i = 0; i < a.getLength(); i++)
-      v.data[i] += b.data[i];
+  public static Vektor mult(Vektor v, double lambda) {
+    Vektor res = new Vektor(v);
 
-    return v;
+    for (int i = 0; i < res.getLength(); i++)
+      res.data[i] *= lambda;
+
+    return res;
   }
 
 
-  public static Vektor subtract(Vektor a, Vektor b) throws Exception {
+  /**
+   * @return Das Skalarprodukt der Vektoren.
+   */
+  public static double scp(Vektor a, Vektor b) throws Exception {
     if (a.getLength() != b.getLength())
       throw new Exception("Dimension Error");
 
-    Vektor v = new Vektor(a);
+    return Kernels.dot(a.data, 0, b.data, 0, a.data.length);
+  }
 
-    for (int i = 0; i < a.getLength(); i++)
-      v.data[i] -= b.data[i];
 
-    return v;
+  /**
+   * @return Das komponentenweise Produkt der Vektoren.
+   */
+  public static Vektor mult(Vektor a, Vektor b) throws Exception {
+    return hadamardInto(a, b, new Vektor(a.getLength()));
   }
 
 
-  public static Vektor mult(Vektor v, double lambda) {
-    Vektor res = new Vektor(v);
+  public static Matrix dyadicProduct(Vektor a, Vektor b) {
+    Matrix res = new Matrix(a.getLength(), b.getLength());
+    double values[] = res.getData();
+    int m = b.getLength();
 
-    for (int i = 0; i < res.getLength(); i++)
-      res.data[i] *= lambda;
+    for (int i = 0; i < a.getLength(); i++)
+      Kernels.scale(a.data[i], b.data, 0, values, i * m, m);
 
     return res;
   }
 
 
+  /*
+   * /////////////////////////////////////// Operatoren mit Zielvektor
+   * ///////////////////////////////////////
+   */
+
   /**
-   * @return Das Skalarprodukt der Vektoren.
+   * Addiert zwei Vektoren und schreibt das Ergebnis in einen vorhandenen
+   * Vektor. Dieser darf auch einer der Summanden sein.
+   * 
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
    */
-  public static double scp(Vektor a, Vektor b) throws Exception {
-    if (a.getLength() != a.getLength())
+  public static Vektor addInto(Vektor a, Vektor b, Vektor out)
+      throws Exception {
+    if (a.getLength() != b.getLength() || a.getLength() != out.getLength())
       throw new Exception("Dimension Error");
 
-    double sum = 0;
+    Kernels.add(a.data, 0, b.data, 0, out.data, 0, a.data.length);
 
-    for (int i = 0; i < a.getLength(); i++)
-      sum += a.get(i) * b.get(i);
+    return out;
+  }
+
+
+  /**
+   * Subtrahiert b von a und schreibt das Ergebnis in einen vorhandenen Vektor.
+   * Dieser darf auch a oder b sein.
+   * 
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
+   */
+  public static Vektor subtractInto(Vektor a, Vektor b, Vektor out)
+      throws Exception {
+    if (a.getLength() != b.getLength() || a.getLength() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    for (int i = 0; i < a.data.length; i++)
+      out.data[i] = a.data[i] - b.data[i];
 
-    return sum;
+    return out;
   }
 
 
   /**
-   * @return Das komponentenweise Produkt der Vektoren.
+   * Multipliziert zwei Vektoren komponentenweise und schreibt das Ergebnis in
+   * einen vorhandenen Vektor. Dieser darf auch a oder b sein.
+   * 
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
    */
-  public static Vektor mult(Vektor a, Vektor b) throws Exception {
-    if (a.getLength() != b.getLength())
+  public static Vektor hadamardInto(Vektor a, Vektor b, Vektor out)
+      throws Exception {
+    if (a.getLength() != b.getLength() || a.getLength() != out.getLength())
       throw new Exception("Dimension Error");
 
-    Vektor v = new Vektor(a);
+    Kernels.mult(a.data, 0, b.data, 0, out.data, 0, a.data.length);
+
+    return out;
+  }
 
-    for (int i = 0; i < a.getLength(); i++)
-      v.data[i] *= b.get(i);
 
-    return v;
+  /**
+   * Multipliziert einen Vektor mit einem reellen Wert und schreibt das
+   * Ergebnis in einen vorhandenen Vektor. Dieser darf auch v sein.
+   * 
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
+   */
+  public static Vektor multInto(Vektor v, double lambda, Vektor out)
+      throws Exception {
+    if (v.getLength() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    Kernels.scale(lambda, v.data, 0, out.data, 0, v.data.length);
+
+    return out;
   }
 
 
-  public static Matrix dyadicProduct(Vektor a, Vektor b) {
-    Matrix res = new Matrix(a.getLength(), b.getLength());
+  /**
+   * Verknpft zwei Vektoren komponentenweise mit einer Funktion.
+   * 
+   * @param op Die Funktion, die auf je zwei Eintrge angewendet wird.
+   * @param a  Der Vektor mit den linken Argumenten.
+   * @param b  Der Vektor mit den rechten Argumenten.
+   * @return Einen neuen Vektor mit den Ergebnissen.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
+   */
+  public static Vektor apply(DoubleBinaryOperator op, Vektor a, Vektor b)
+      throws Exception {
+    return applyInto(op, a, b, new Vektor(a.getLength()));
+  }
 
-    for (int i = 0; i < a.getLength(); i++)
-      for (int j = 0; j < b.getLength(); j++)
-        res.set(i, j, a.get(i) * b.get(j));
 
-    return res;
+  /**
+   * Verknpft zwei Vektoren komponentenweise mit einer Funktion und schreibt
+   * die Ergebnisse in einen vorhandenen Vektor. Dieser darf auch a oder b
+   * sein.
+   * 
+   * @param op  Die Funktion, die auf je zwei Eintrge angewendet wird.
+   * @param a   Der Vektor mit den linken Argumenten.
+   * @param b   Der Vektor mit den rechten Argumenten.
+   * @param out Der Vektor, der die Ergebnisse aufnimmt.
+   * @return Den Vektor out.
+   * @throws Exception Falls die Lngen der Vektoren nicht bereinstimmen.
+   */
+  public static Vektor applyInto(DoubleBinaryOperator op, Vektor a, Vektor b,
+      Vektor out) throws Exception {
+    if (a.getLength() != b.getLength() || a.getLength() != out.getLength())
+      throw new Exception("Dimension Error");
+
+    for (int i = 0; i < a.data.length; i++)
+      out.data[i] = op.applyAsDouble(a.data[i], b.data[i]);
+
+    return out;
   }
 
 
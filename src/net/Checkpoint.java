@@ -0,0 +1,525 @@
+package net;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import data.ChartPoint;
+import data.Logalizer;
+import data.Normalizer;
+import math.Activation;
+import math.Matrix;
+import math.OffHeapMatrix;
+import math.Precision;
+import math.Sigmoid;
+import math.SparseMatrix;
+
+
+/**
+ * Ein gespeicherter Stand eines neuronalen Netzes samt der Parameter, mit
+ * denen die Daten fr das Netz aufbereitet wurden (Logalizer und Normalizer).
+ * Damit lsst sich ein trainiertes Netz nach einem Neustart weiterverwenden
+ * und weitertrainieren, ohne von vorne zu beginnen.
+ *
+ * Die Datei ist binr und in der Byte-Reihenfolge OffHeapMatrix.ORDER
+ * geschrieben:
+ *
+ * <pre>
+ * int    MAGIC, VERSION
+ * int    estimateLength, Anzahl k der Layergren, k Layergren
+ * long   seed
+ * String Genauigkeit, Berechnungsart der Sigmoid-Funktion
+ * je Layer: String Aktivierungsfunktion, int Anzahl der Gewichtsnderungen,
+ *        byte Speicherart der Gewichte (DENSE, SPARSE oder SPARSE_FLOAT)
+ * byte   1, falls Converter folgen, sonst 0
+ *        String outputValue, double Erwartungswert, double
+ *        Standardabweichung, int Anzahl n der Anfangswerte, n-mal String
+ *        Schlssel und double Wert
+ * je Layer, beginnend an durch 8 teilbaren Positionen: Gewichte, double
+ *        Schrittweiten, byte Vorzeichen der vorigen Gradienten
+ * </pre>
+ *
+ * Strings bestehen aus ihrer Lnge in Bytes (int) und den Bytes in UTF-8.
+ * Matrizen werden zeilenweise abgelegt. Ausgednnte Gewichte (siehe
+ * Net.prune) werden samt Besetzungsstruktur im Format von
+ * SparseMatrix.writeTo gespeichert, damit entfernte Gewichte auch nach dem
+ * Laden 0 bleiben, und zwar in der Genauigkeit, in der sie im Speicher
+ * liegen. Dateien der Version 1 enthalten keine Speicherart, ihre Gewichte
+ * sind immer dicht besetzt. In Dateien der Version 2 sind ausgednnte
+ * Gewichte immer in doppelter Genauigkeit gespeichert.
+ *
+ * Beim Laden wird die Datei in den Speicher abgebildet (siehe
+ * FileChannel.map), sodass Gewichte und Schrittweiten ohne Umweg ber
+ * Lesepuffer blockweise in die Matrizen kopiert werden. Da sie ausgerichtet
+ * und in der Byte-Reihenfolge des Prozessors vorliegen, dauert das auch bei
+ * Millionen von Gewichten nur Millisekunden.
+ *
+ * @author Roland Vlker
+ */
+public class Checkpoint {
+
+  /**
+   * Die Kennung am Anfang jeder Datei.
+   */
+  public static final int MAGIC = 0x4E4E4350;
+
+  /**
+   * Die Version des Dateiformats.
+   */
+  public static final int VERSION = 3;
+
+  /**
+   * Speicherart fr dicht besetzte Gewichte: rows * cols double-Werte.
+   */
+  private static final byte DENSE = 0;
+
+  /**
+   * Speicherart fr ausgednnte Gewichte in doppelter Genauigkeit (siehe
+   * SparseMatrix.writeTo).
+   */
+  private static final byte SPARSE = 1;
+
+  /**
+   * Speicherart fr ausgednnte Gewichte in einfacher Genauigkeit (siehe
+   * SparseMatrix.writeTo), seit Version 3.
+   */
+  private static final byte SPARSE_FLOAT = 2;
+
+  /**
+   * Das gespeicherte Netz.
+   */
+  private final Net net;
+
+  /**
+   * Der Logalizer der Trainingsdaten oder null.
+   */
+  private final Logalizer logalizer;
+
+  /**
+   * Der Normalizer der Trainingsdaten oder null.
+   */
+  private final Normalizer normalizer;
+
+  /**
+   * Die Bezeichnung des geschtzten Wertes oder null.
+   */
+  private final String outputValue;
+
+
+  /**
+   * Erstellt einen Stand, der nur das Netz enthlt.
+   *
+   * @param net Das Netz.
+   */
+  public Checkpoint(Net net) {
+    this(net, null, null, null);
+  }
+
+
+  /**
+   * Erstellt einen Stand aus einem Netz und den Convertern, mit denen seine
+   * Trainingsdaten aufbereitet wurden (siehe DataHandler).
+   *
+   * @param net         Das Netz.
+   * @param logalizer   Der Logalizer der Trainingsdaten.
+   * @param normalizer  Der Normalizer der Trainingsdaten.
+   * @param outputValue Die Bezeichnung des geschtzten Wertes.
+   */
+  public Checkpoint(Net net, Logalizer logalizer, Normalizer normalizer,
+      String outputValue) {
+    this.net = net;
+    this.logalizer = logalizer;
+    this.normalizer = normalizer;
+    this.outputValue = outputValue;
+  }
+
+
+  /**
+   * Schreibt den Stand in eine Datei. Geschrieben wird zunchst in eine
+   * temporre Datei im selben Verzeichnis, die erst danach die vorhandene
+   * Datei ersetzt. Schlgt das Schreiben fehl oder wird es unterbrochen,
+   * bleibt ein zuvor gespeicherter Stand also erhalten. Whrend des
+   * Schreibens darf das Netz nicht trainiert werden, sonst passen Gewichte
+   * und Schrittweiten nicht zueinander (siehe Training.train()).
+   *
+   * @param file Die Datei.
+   * @throws IOException Falls das Schreiben fehlschlgt.
+   */
+  public void write(Path file) throws IOException {
+    Path temp = Files.createTempFile(file.toAbsolutePath().getParent(),
+        file.getFileName().toString(), ".tmp");
+
+    try {
+      try (FileChannel channel = FileChannel.open(temp,
+          StandardOpenOption.WRITE)) {
+        writeFully(channel, header());
+
+        for (Layer layer : net) {
+          byte signs[] = layer.getGradientSigns();
+
+          writeMatrix(channel, layer.getWeights());
+          writeMatrix(channel, layer.getWeightsDiff());
+          writeFully(channel, ByteBuffer.wrap(signs));
+          writeFully(channel, ByteBuffer.allocate(padding(signs.length)));
+        }
+
+        channel.force(true);
+      }
+
+      Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE,
+          StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+
+  /**
+   * Ldt einen Stand aus einer Datei (siehe Klassenbeschreibung). Die Datei
+   * darf hchstens 2 GiB gro sein.
+   *
+   * @param file Die Datei.
+   * @return Der geladene Stand.
+   * @throws IOException Falls die Datei nicht gelesen werden kann oder kein
+   *                     gltiger Stand ist.
+   */
+  public static Checkpoint read(Path file) throws IOException {
+    ByteBuffer b;
+
+    try (FileChannel channel = FileChannel.open(file,
+        StandardOpenOption.READ)) {
+      // Die Abbildung bleibt auch nach dem Schlieen des Kanals gltig
+      b = channel.map(MapMode.READ_ONLY, 0, channel.size())
+          .order(OffHeapMatrix.ORDER);
+    }
+
+    try {
+      return read(b);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Ungltige oder unvollstndige Datei: " + file,
+          e);
+    }
+  }
+
+
+  /**
+   * Liest einen Stand aus einem Puffer ab dessen Anfang.
+   *
+   * @param b Der Puffer in der Byte-Reihenfolge OffHeapMatrix.ORDER.
+   * @return Der gelesene Stand.
+   * @throws IOException Falls Kennung oder Version nicht passen.
+   */
+  private static Checkpoint read(ByteBuffer b) throws IOException {
+    if (b.getInt() != MAGIC)
+      throw new IOException("Keine Datei eines neuronalen Netzes");
+
+    int version = b.getInt();
+    if (version < 1 || version > VERSION)
+      throw new IOException("Nicht untersttzte Version " + version);
+
+    int estimateLength = b.getInt();
+    int sizes = b.getInt();
+
+    // Mindestens Eingabe- und Ausgabelayer, jede Gre belegt ein int
+    if (sizes < 2 || sizes > b.remaining() / Integer.BYTES)
+      throw new IllegalArgumentException("Ungltige Layeranzahl " + sizes);
+
+    List<Integer> structure = new ArrayList<>();
+    for (int i = 0; i < sizes; i++)
+      structure.add(b.getInt());
+
+    long seed = b.getLong();
+    Precision precision = Precision.valueOf(getString(b));
+    Sigmoid sigmoid = Sigmoid.valueOf(getString(b));
+
+    int count = structure.size() - 1;
+    Activation activations[] = new Activation[count];
+    int updates[] = new int[count];
+    byte storage[] = new byte[count];
+
+    for (int i = 0; i < count; i++) {
+      activations[i] = Activation.forName(getString(b));
+      if (activations[i] instanceof Sigmoid)
+        activations[i] = sigmoid;
+
+      updates[i] = b.getInt();
+      storage[i] = version > 1 ? b.get() : DENSE;
+
+      if (storage[i] != DENSE && storage[i] != SPARSE
+          && (storage[i] != SPARSE_FLOAT || version < 3))
+        throw new IllegalArgumentException("Unbekannte Speicherart");
+    }
+
+    Logalizer logalizer = null;
+    Normalizer normalizer = null;
+    String outputValue = null;
+
+    if (b.get() != 0) {
+      outputValue = getString(b);
+      normalizer = new Normalizer(b.getDouble(), b.getDouble());
+
+      ChartPoint startValue = new ChartPoint();
+      for (int i = b.getInt(); i > 0; i--)
+        startValue.put(getString(b), b.getDouble());
+
+      logalizer = new Logalizer(startValue);
+    }
+
+    b.position(b.position() + padding(b.position()));
+
+    List<Layer> layers = new ArrayList<>();
+
+    for (int i = 0; i < count; i++) {
+      int rows = structure.get(i + 1);
+      int cols = structure.get(i) + 1;
+
+      // Schrittweiten und Vorzeichen belegen in jedem Fall so viel Platz
+      if (rows <= 0 || cols <= 1
+          || (long) rows * cols * (Double.BYTES + 1) > b.remaining())
+        throw new IllegalArgumentException("Layer " + i + " passt nicht");
+
+      int n = rows * cols;
+      Matrix weights;
+
+      if (storage[i] == SPARSE) {
+        weights = new SparseMatrix(rows, cols, b, Precision.DOUBLE);
+      } else if (storage[i] == SPARSE_FLOAT) {
+        weights = new SparseMatrix(rows, cols, b, Precision.FLOAT);
+      } else {
+        weights = new Matrix(rows, cols);
+        b.asDoubleBuffer().get(weights.getData());
+        b.position(b.position() + n * Double.BYTES);
+      }
+
+      // Auch ausgednnte Gewichte aus Dateien der Version 2
+      weights = precision.store(weights);
+
+      Matrix weightsDiff = new Matrix(rows, cols);
+      b.asDoubleBuffer().get(weightsDiff.getData());
+      b.position(b.position() + n * Double.BYTES);
+
+      byte signs[] = new byte[n];
+      b.get(signs);
+      b.position(b.position() + padding(n));
+
+      layers.add(new Layer(weights, weightsDiff, signs, updates[i],
+          activations[i]));
+    }
+
+    Net net = new Net(estimateLength, structure, precision, seed, sigmoid,
+        layers);
+
+    return new Checkpoint(net, logalizer, normalizer, outputValue);
+  }
+
+
+  /**
+   * Legt den Kopf der Datei bis zum Beginn der Matrizen an.
+   *
+   * @return Der Kopf, bereit zum Schreiben.
+   */
+  private ByteBuffer header() {
+    List<Integer> structure = net.getStructure();
+    List<byte[]> strings = new ArrayList<>();
+
+    strings.add(bytes(net.getPrecision().name()));
+    strings.add(bytes(net.getSigmoid().name()));
+    for (Layer layer : net)
+      strings.add(bytes(layer.getActivation().getName()));
+
+    Map<String, Double> startValue = null;
+    if (normalizer != null) {
+      strings.add(bytes(outputValue));
+      startValue = logalizer.getStartValue();
+      for (String key : startValue.keySet())
+        strings.add(bytes(key));
+    }
+
+    int size = 4 * Integer.BYTES + structure.size() * Integer.BYTES
+        + Long.BYTES + (structure.size() - 1) * (Integer.BYTES + 1) + 1;
+    for (byte s[] : strings)
+      size += Integer.BYTES + s.length;
+    if (startValue != null)
+      size += 2 * Double.BYTES + Integer.BYTES
+          + startValue.size() * Double.BYTES;
+
+    ByteBuffer b = ByteBuffer.allocate(size + padding(size))
+        .order(OffHeapMatrix.ORDER);
+    int s = 0;
+
+    b.putInt(MAGIC).putInt(VERSION);
+    b.putInt(net.getEstimateLength()).putInt(structure.size());
+    for (int length : structure)
+      b.putInt(length);
+
+    b.putLong(net.getSeed());
+    putString(b, strings.get(s++));
+    putString(b, strings.get(s++));
+    for (Layer layer : net) {
+      putString(b, strings.get(s++));
+      b.putInt(layer.getUpdates());
+      b.put(storage(layer.getWeights()));
+    }
+
+    b.put((byte) (startValue != null ? 1 : 0));
+    if (startValue != null) {
+      putString(b, strings.get(s++));
+      b.putDouble(normalizer.getExpectedValue());
+      b.putDouble(normalizer.getStandardDeviation());
+      b.putInt(startValue.size());
+
+      for (double value : startValue.values()) {
+        putString(b, strings.get(s++));
+        b.putDouble(value);
+      }
+    }
+
+    b.position(0);
+    return b;
+  }
+
+
+  /**
+   * Bestimmt die Speicherart, in der eine Gewichtsmatrix geschrieben wird.
+   *
+   * @param mat Die Gewichtsmatrix.
+   * @return DENSE, SPARSE oder SPARSE_FLOAT.
+   */
+  private static byte storage(Matrix mat) {
+    if (!(mat instanceof SparseMatrix))
+      return DENSE;
+
+    if (((SparseMatrix) mat).getPrecision() == Precision.FLOAT)
+      return SPARSE_FLOAT;
+
+    return SPARSE;
+  }
+
+
+  /**
+   * Schreibt die Werte einer Matrix zeilenweise in den Kanal, bei einer
+   * SparseMatrix samt Besetzungsstruktur.
+   *
+   * @param channel Der Kanal.
+   * @param mat     Die Matrix.
+   * @throws IOException Falls das Schreiben fehlschlgt.
+   */
+  private static void writeMatrix(FileChannel channel, Matrix mat)
+      throws IOException {
+    if (mat instanceof SparseMatrix) {
+      ((SparseMatrix) mat).writeTo(channel);
+      return;
+    }
+
+    if (mat instanceof OffHeapMatrix) {
+      ((OffHeapMatrix) mat).writeTo(channel);
+      return;
+    }
+
+    ByteBuffer b = ByteBuffer
+        .allocate(mat.getRows() * mat.getCols() * Double.BYTES)
+        .order(OffHeapMatrix.ORDER);
+
+    for (int i = 0; i < mat.getRows(); i++) {
+      for (int j = 0; j < mat.getCols(); j++)
+        b.putDouble(mat.get(i, j));
+    }
+
+    b.flip();
+    writeFully(channel, b);
+  }
+
+
+  /**
+   * Schreibt den ganzen Pufferinhalt in den Kanal.
+   *
+   * @param channel Der Kanal.
+   * @param b       Der Puffer.
+   * @throws IOException Falls das Schreiben fehlschlgt.
+   */
+  private static void writeFully(FileChannel channel, ByteBuffer b)
+      throws IOException {
+    while (b.hasRemaining())
+      channel.write(b);
+  }
+
+
+  /**
+   * Die Anzahl der Fllbytes bis zur nchsten durch 8 teilbaren Position,
+   * damit die double-Werte ausgerichtet im Speicher liegen.
+   *
+   * @param position Die aktuelle Position.
+   * @return Die Anzahl der Fllbytes (0 bis 7).
+   */
+  private static int padding(int position) {
+    return -position & (Double.BYTES - 1);
+  }
+
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+
+  private static void putString(ByteBuffer b, byte s[]) {
+    b.putInt(s.length).put(s);
+  }
+
+
+  private static String getString(ByteBuffer b) {
+    int len = b.getInt();
+
+    if (len < 0 || len > b.remaining())
+      throw new IllegalArgumentException("Ungltige Lnge " + len);
+
+    byte s[] = new byte[len];
+    b.get(s);
+
+    return new String(s, StandardCharsets.UTF_8);
+  }
+
+
+  /**
+   * @return Das gespeicherte Netz.
+   */
+  public Net getNet() {
+    return net;
+  }
+
+
+  /**
+   * @return Der Logalizer der Trainingsdaten oder null, falls keiner
+   *         gespeichert ist.
+   */
+  public Logalizer getLogalizer() {
+    return logalizer;
+  }
+
+
+  /**
+   * @return Der Normalizer der Trainingsdaten oder null, falls keiner
+   *         gespeichert ist.
+   */
+  public Normalizer getNormalizer() {
+    return normalizer;
+  }
+
+
+  /**
+   * @return Die Bezeichnung des geschtzten Wertes oder null, falls keine
+   *         gespeichert ist.
+   */
+  public String getOutputValue() {
+    return outputValue;
+  }
+}
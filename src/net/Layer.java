@@ -1,9 +1,16 @@
 package net;
 
+import java.util.SplittableRandom;
+
+import math.Activation;
+import math.Execution;
+import math.LinearAlgebraBackend;
 import math.MathHelper;
+import math.MatrixArena;
 import math.Matrix;
+import math.Precision;
+import math.SparseMatrix;
 import math.Vektor;
-import util.BoundedQueue;
 
 
 /**
@@ -23,7 +30,8 @@ public class Layer {
   private Vektor output;
 
   /**
-   * Der Eingabevektor.
+   * Der Eingabevektor (ohne Biaserweiterung). Er wird nicht kopiert, sondern
+   * verweist auf den zuletzt eingegebenen Vektor.
    */
   private Vektor input;
 
@@ -33,15 +41,29 @@ public class Layer {
   private Matrix weights;
 
   /**
-   * Die nderungsmatrix fr die Gewichtsmatrix.
+   * Die nderungsmatrix fr die Gewichtsmatrix, also die Schrittweiten des
+   * RPROP-Trainings.
    */
   private Matrix weightsDiff;
 
   /**
-   * Die (begrenzte) Liste der Gradientenmatrizen. Enthlt drei Matrizen, von
-   * denen die lteste beim Einfgen einer neuen gelscht wird.
+   * Der Gradient der aktuellen Epoche. Er wird nach jeder nderung der
+   * Gewichte geleert und wiederverwendet.
+   */
+  private Matrix gradient;
+
+  /**
+   * Das Vorzeichen des Gradienten der vorigen Epoche fr jedes Gewicht (-1, 0
+   * oder 1). Hatte sich das Vorzeichen dabei gegenber der Epoche davor
+   * umgekehrt, ist der Wert verdoppelt (-2 oder 2). Mehr bentigt das
+   * RPROP-Training von den lteren Gradienten nicht (siehe Training).
+   */
+  private byte gradientSigns[];
+
+  /**
+   * Die Anzahl der bisherigen nderungen der Gewichte.
    */
-  private BoundedQueue<Matrix> gradients;
+  private int updates;
 
   /**
    * Enthlt die Deltawerte des Layers. Diese sind beim Training und der
@@ -49,61 +71,271 @@ public class Layer {
    */
   private Vektor delta;
 
+  /**
+   * Der ber die Gewichte dieses Layers zurckgefhrte Fehler, also das
+   * Produkt aus den Deltawerten und der Gewichtsmatrix. Daraus berechnet der
+   * vorige Layer seine Deltawerte.
+   */
+  private Vektor backError;
+
+  /**
+   * Die zuletzt stapelweise eingegebenen Vektoren (siehe feedBatch), einer
+   * pro Reihe. Auch sie werden nicht kopiert.
+   */
+  private Matrix batchInput;
+
+  /**
+   * Die Ausgabevektoren zu batchInput, einer pro Reihe.
+   */
+  private Matrix batchOutput;
+
+  /**
+   * Die Deltawerte zu batchInput, einer pro Reihe.
+   */
+  private Matrix batchDelta;
+
+  /**
+   * Der zurckgefhrte Fehler zu batchInput, einer pro Reihe (siehe
+   * backError).
+   */
+  private Matrix batchBackError;
+
+  /**
+   * batchOutput des vorletzten Stapels, falls dieser eine andere Gre hatte.
+   * So wechseln sich volle Stapel und der krzere letzte Stapel einer Epoche
+   * ab, ohne dass jedes Mal neue Matrizen angelegt werden (siehe
+   * prepareBatch).
+   */
+  private Matrix spareBatchOutput;
+
+  /**
+   * batchDelta des vorletzten Stapels (siehe spareBatchOutput).
+   */
+  private Matrix spareBatchDelta;
+
+  /**
+   * batchBackError des vorletzten Stapels (siehe spareBatchOutput).
+   */
+  private Matrix spareBatchBackError;
+
+  /**
+   * Legt fest, ob die Matrix-Operationen des Layers parallel ausgefhrt
+   * werden.
+   */
+  private Execution execution;
+
+  /**
+   * Die Implementierung der Rechenoperationen, mit der der Layer rechnet.
+   */
+  private LinearAlgebraBackend backend;
+
+  /**
+   * Die Aktivierungsfunktion, mit der die Ausgabe gebildet wird.
+   */
+  private Activation activation;
+
 
   /**
-   * Erstellt einen Layer. Der Eingabevektor besitzt eine um 1 erhhte Lnge, da
-   * er spter erweitert wird (siehe extendInput). Die Gewichtsmatrix wird mit
-   * zuflligen Werten zwischen -0.01 und 0.01 gefllt, danach werden ihre
-   * Zeilen orthogonalisiert. Auerdem wird die Liste der Gradienten auf die
-   * Lnge 3 gestellt, dies ist notwendig fr das RPROP-Training (siehe Klasse
-   * Training).
+   * Erstellt einen Layer. Die Gewichtsmatrix besitzt eine Spalte mehr, als der
+   * Eingabevektor lang ist, denn die letzte Spalte enthlt die Biaswerte. Sie
+   * wird mit zuflligen Werten zwischen -0.01 und 0.01 gefllt, danach werden
+   * ihre Zeilen orthogonalisiert. Auerdem werden Gradient, Schrittweiten und
+   * Vorzeichen fr das RPROP-Training angelegt (siehe Klasse Training).
    * 
    * @param outputLength Lnge des Outputvektors
    * @param inputLength  Lnge des Inputvektors (ohne Biaserweiterung)
    */
   public Layer(int outputLength, int inputLength) {
+    this(outputLength, inputLength, Precision.DOUBLE);
+  }
+
+
+  /**
+   * Erstellt einen Layer, dessen Gewichte in der angegebenen Genauigkeit
+   * gespeichert werden. Die Gradienten und Gewichtsvernderungen werden
+   * unabhngig davon in doppelter Genauigkeit gefhrt, da sich in ihnen viele
+   * kleine Beitrge aufsummieren.
+   * 
+   * @param outputLength Lnge des Outputvektors
+   * @param inputLength  Lnge des Inputvektors (ohne Biaserweiterung)
+   * @param precision    Die Genauigkeit der Gewichte.
+   */
+  public Layer(int outputLength, int inputLength, Precision precision) {
+    this(outputLength, inputLength, precision, new SplittableRandom());
+  }
+
+
+  /**
+   * Erstellt einen Layer, dessen Gewichte mit dem angegebenen
+   * Zufallsgenerator erzeugt werden. Mit einem Generator im gleichen Zustand
+   * entsteht so immer derselbe Layer.
+   * 
+   * @param outputLength Lnge des Outputvektors
+   * @param inputLength  Lnge des Inputvektors (ohne Biaserweiterung)
+   * @param precision    Die Genauigkeit der Gewichte.
+   * @param random       Der Zufallsgenerator fr die Gewichte.
+   */
+  public Layer(int outputLength, int inputLength, Precision precision,
+      SplittableRandom random) {
     output = new Vektor(outputLength);
-    input = new Vektor(inputLength + 1);
+    input = new Vektor(inputLength);
+    delta = new Vektor(outputLength);
+    backError = new Vektor(inputLength + 1);
 
-    weights = MathHelper.random(outputLength, inputLength + 1, -0.01, 0.01);
+    weights = MathHelper.random(outputLength, inputLength + 1, -0.01, 0.01,
+        random, Execution.PARALLEL);
     try {
       MathHelper.orthogonalize(weights);
     } catch (Exception e) {
       e.printStackTrace();
     }
+    weights = precision.store(weights);
 
     weightsDiff = new Matrix(outputLength, inputLength + 1, 0);
-    gradients = new BoundedQueue<>(3);
-    gradients.push(new Matrix(outputLength, inputLength + 1, 0));
+    gradient = new Matrix(outputLength, inputLength + 1, 0);
+    gradientSigns = new byte[outputLength * (inputLength + 1)];
+
+    execution = Execution.SEQUENTIAL;
+    backend = LinearAlgebraBackend.getDefault();
+    activation = Activation.SIGMOID;
+  }
+
+
+  /**
+   * Erstellt einen Layer aus bereits vorhandenen Gewichten und dem Stand des
+   * RPROP-Trainings, etwa beim Laden eines gespeicherten Netzes (siehe
+   * Checkpoint). Die Matrizen und das Array werden nicht kopiert.
+   * 
+   * @param weights       Die Gewichtsmatrix mit der Biasspalte.
+   * @param weightsDiff   Die Schrittweiten des RPROP-Trainings.
+   * @param gradientSigns Die Vorzeichen der vorigen Gradienten.
+   * @param updates       Die Anzahl der bisherigen nderungen der Gewichte.
+   * @param activation    Die Aktivierungsfunktion.
+   */
+  Layer(Matrix weights, Matrix weightsDiff, byte gradientSigns[], int updates,
+      Activation activation) {
+    int outputLength = weights.getRows();
+    int inputLength = weights.getCols() - 1;
+
+    output = new Vektor(outputLength);
+    input = new Vektor(inputLength);
+    delta = new Vektor(outputLength);
+    backError = new Vektor(inputLength + 1);
+
+    this.weights = weights;
+    this.weightsDiff = weightsDiff;
+    this.gradientSigns = gradientSigns;
+    this.updates = updates;
+    gradient = new Matrix(outputLength, inputLength + 1, 0);
+
+    execution = Execution.SEQUENTIAL;
+    backend = LinearAlgebraBackend.getDefault();
+    this.activation = activation;
   }
 
 
   /**
-   * Erweitert den Eingabevektor um eine angehngte 1. Diese ist zur
-   * Einbeziehung der Biaswerte wichtig.
+   * Erstellt einen Layer, der die Gewichte eines anderen Layers mitbenutzt,
+   * aber eigene Ausgaben, Deltawerte und einen eigenen Gradienten besitzt. So
+   * knnen mehrere Threads gleichzeitig verschiedene Patterns durch dieselben
+   * Gewichte schicken (siehe Training.setThreads). Der Layer rechnet
+   * sequentiell.
    * 
-   * @param in Der zu erweiternde Vektor.
+   * @param shared Der Layer, dessen Gewichte mitbenutzt werden.
    */
-  private void extendInput(Vektor in) {
-    input = new Vektor(in.getLength() + 1);
+  Layer(Layer shared) {
+    int inputLength = shared.weights.getCols() - 1;
+
+    output = new Vektor(shared.getSize());
+    input = new Vektor(inputLength);
+    delta = new Vektor(shared.getSize());
+    backError = new Vektor(inputLength + 1);
+    gradient = new Matrix(shared.getSize(), inputLength + 1, 0);
+
+    execution = Execution.SEQUENTIAL;
+    share(shared);
+  }
 
-    for (int i = 0; i < in.getLength(); i++)
-      input.set(i, in.get(i));
 
-    input.set(in.getLength(), 1); // Erweitert
+  /**
+   * bernimmt Gewichte, Schrittweiten, Backend und Aktivierungsfunktion eines
+   * anderen Layers, ohne sie zu kopieren (siehe Layer(Layer)).
+   * 
+   * @param shared Der Layer, dessen Gewichte mitbenutzt werden.
+   */
+  void share(Layer shared) {
+    weights = shared.weights;
+    weightsDiff = shared.weightsDiff;
+    gradientSigns = shared.gradientSigns;
+    backend = shared.backend;
+    activation = shared.activation;
   }
 
 
   /**
-   * Schickt den Eingabevektor durch das neuronale Netz.
+   * Schickt den Eingabevektor durch das neuronale Netz. Gewichtsmatrix, Bias
+   * und Aktivierungsfunktion werden direkt in den Ausgabevektor gerechnet
+   * (siehe LinearAlgebraBackend.affineInto).
    * 
    * @param in Der Eingabevektor.
    * @throws Exception Mgliche Berechnungsfehler.
    */
   public void feed(Vektor in) throws Exception {
-    extendInput(in);
-    output = weights.mult(this.input);
-    output = output.apply(MathHelper::sigmoid);
+    input = in;
+    backend.affineInto(weights, input, activation, output, execution);
+  }
+
+
+  /**
+   * Schickt einen ganzen Stapel von Eingabevektoren auf einmal durch den
+   * Layer. Statt vieler Matrix-Vektor-Produkte wird so ein einziges
+   * Matrix-Matrix-Produkt berechnet, bei dem die Gewichtsmatrix blockweise
+   * wiederverwendet werden kann.
+   * 
+   * @param in Die Eingabevektoren, einer pro Reihe.
+   * @return Die Ausgabevektoren, einer pro Reihe. Die Matrix gehrt dem Layer
+   *         und wird beim nchsten Aufruf berschrieben.
+   * @throws Exception Mgliche Berechnungsfehler.
+   */
+  public Matrix feedBatch(Matrix in) throws Exception {
+    prepareBatch(in.getRows());
+
+    batchInput = in;
+    backend.affineInto(weights, batchInput, activation, batchOutput,
+        execution);
+
+    return batchOutput;
+  }
+
+
+  /**
+   * Stellt die Matrizen fr einen Stapel mit n Eingabevektoren bereit. Passen
+   * die aktuellen Matrizen nicht, werden sie mit denen des vorletzten Stapels
+   * getauscht und nur dann neu angelegt, wenn auch diese nicht passen.
+   * 
+   * @param n Die Anzahl der Eingabevektoren des Stapels.
+   */
+  private void prepareBatch(int n) {
+    if (batchOutput != null && batchOutput.getRows() == n)
+      return;
+
+    Matrix output = spareBatchOutput;
+    Matrix delta = spareBatchDelta;
+    Matrix backError = spareBatchBackError;
+
+    spareBatchOutput = batchOutput;
+    spareBatchDelta = batchDelta;
+    spareBatchBackError = batchBackError;
+
+    if (output == null || output.getRows() != n) {
+      output = new Matrix(n, getSize());
+      delta = new Matrix(n, getSize());
+      backError = new Matrix(n, weights.getCols());
+    }
+
+    batchOutput = output;
+    batchDelta = delta;
+    batchBackError = backError;
   }
 
 
@@ -118,6 +350,49 @@ public class Layer {
   }
 
 
+  /**
+   * Legt fest, ob die Matrix-Operationen des Layers parallel ausgefhrt
+   * werden.
+   * 
+   * @param execution Der Ausfhrungsmodus.
+   */
+  public void setExecution(Execution execution) {
+    this.execution = execution;
+  }
+
+
+  /**
+   * Legt die Implementierung der Rechenoperationen fest, mit der der Layer
+   * rechnet.
+   * 
+   * @param backend Die Implementierung der Rechenoperationen.
+   */
+  public void setBackend(LinearAlgebraBackend backend) {
+    this.backend = backend;
+  }
+
+
+  /**
+   * Gibt die Aktivierungsfunktion zurck, mit der die Ausgabe gebildet wird.
+   * 
+   * @return Die Aktivierungsfunktion.
+   */
+  public Activation getActivation() {
+    return activation;
+  }
+
+
+  /**
+   * Legt die Aktivierungsfunktion fest, mit der die Ausgabe gebildet wird.
+   * Voreingestellt ist die Sigmoid-Funktion.
+   * 
+   * @param activation Die Aktivierungsfunktion.
+   */
+  public void setActivation(Activation activation) {
+    this.activation = activation;
+  }
+
+
   /**
    * Der Ausgabevektor des Layers, mglichst nach einer Eingabe.
    * 
@@ -128,6 +403,17 @@ public class Layer {
   }
 
 
+  /**
+   * Die Ausgabevektoren der zuletzt stapelweise eingegebenen Vektoren, einer
+   * pro Reihe.
+   * 
+   * @return Die Ausgabevektoren des letzten Stapels.
+   */
+  public Matrix getBatchOutput() {
+    return batchOutput;
+  }
+
+
   /**
    * Der von auen oder einem vorigen Layer eingegebene Vektor, der der
    * Berechnung der Ausgabe dient.
@@ -141,14 +427,19 @@ public class Layer {
 
   /**
    * Berechnet den Lambdawert des Layers. Dies ist die Ableitung der
-   * Sigmoid-Funktion, die die Form des Ausgabevektors annimmt, mit anderen
-   * Worten: OutputVektor * (1 - OutputVektor) [komponentenweise Multiplikation]
+   * Aktivierungsfunktion an der Stelle des Ausgabevektors, bei der
+   * Sigmoid-Funktion also OutputVektor * (1 - OutputVektor) [komponentenweise
+   * Multiplikation].
    * 
    * @return Den Lambdawert des Layers.
-   * @throws Exception Mgliche Berechnungsfehler.
    */
-  public Vektor getLambda() throws Exception {
-    return Vektor.mult(output, new Vektor(getSize(), 1).subtract(output));
+  public Vektor getLambda() {
+    Vektor res = new Vektor(getSize());
+
+    for (int u = 0; u < getSize(); u++)
+      res.set(u, activation.derivative(output.get(u)));
+
+    return res;
   }
 
 
@@ -159,20 +450,17 @@ public class Layer {
    * 
    * @param next Der im Netz nchste Layer.
    * @return Einen Vektor, der alle Deltawerte enthlt.
+   * @throws Exception Mgliche Berechnungsfehler.
    */
-  public Vektor calcDelta(Layer next) {
-    delta = new Vektor(getSize());
+  public Vektor calcDelta(Layer next) throws Exception {
+    // Summiere fr jedes Neuron in diesem Layer ber die Neuronen der
+    // nachfolgenden Schicht. Der letzte Eintrag gehrt zum Bias und wird
+    // nicht weiter zurckgefhrt.
+    next.backend.multInto(next.delta, next.weights, next.backError,
+        next.execution);
 
-    // Fr jedes Neuron in diesem Layer
-    for (int u = 0; u < getSize(); u++) {
-      double sum = 0;
-
-      // Summiere ber die Neuronen der nachfolgenden Schicht
-      for (int succ = 0; succ < next.getSize(); succ++)
-        sum += next.weights.get(succ, u) * next.delta.get(succ);
-
-      delta.set(u, sum * output.get(u) * (1 - output.get(u)));
-    }
+    activation.derivativeInto(output.getData(), 0, next.backError.getData(), 0,
+        delta.getData(), 0, getSize());
 
     return delta;
   }
@@ -185,19 +473,86 @@ public class Layer {
    * @return Einen Vektor, der alle Deltawerte enthlt.
    */
   public Vektor calcDelta(Vektor trainingOut) {
-    delta = new Vektor(getSize());
+    return calcDelta(trainingOut, 1);
+  }
+
 
+  /**
+   * Berechnet die Deltawerte des Outputlayers fr ein Pattern mit der
+   * angegebenen Prioritt. Die Deltawerte werden mit der Prioritt
+   * multipliziert; das entspricht dem mehrfachen Eintrainieren des Patterns,
+   * da alle weiteren Deltawerte und Gradienten linear von ihnen abhngen
+   * (siehe calcBatchDelta(Matrix, Vektor)).
+   * 
+   * @param trainingOut Der Soll-Ausgabevektor des Trainingpatterns.
+   * @param priority    Die Prioritt des Patterns.
+   * @return Einen Vektor, der alle Deltawerte enthlt.
+   */
+  public Vektor calcDelta(Vektor trainingOut, double priority) {
     for (int u = 0; u < getSize(); u++)
-      delta.set(u, (trainingOut.get(u) - output.get(u)) * output.get(u)
-          * (1 - output.get(u)));
+      delta.set(u, priority * (trainingOut.get(u) - output.get(u)));
+
+    activation.derivativeInto(output.getData(), 0, delta.getData(), 0,
+        delta.getData(), 0, getSize());
 
     return delta;
   }
 
 
+  /**
+   * Berechnet die Deltawerte des Layers fr den zuletzt eingegebenen Stapel
+   * (siehe calcDelta(Layer)). Die zurckgefhrten Fehler aller Patterns
+   * entstehen dabei in einem einzigen Matrix-Matrix-Produkt.
+   * 
+   * @param next Der im Netz nchste Layer.
+   * @return Die Deltawerte, einer pro Reihe.
+   * @throws Exception Mgliche Berechnungsfehler.
+   */
+  public Matrix calcBatchDelta(Layer next) throws Exception {
+    next.backend.multInto(next.batchDelta, next.weights, next.batchBackError,
+        next.execution);
+
+    final int n = getSize();
+    double y[] = batchOutput.getData();
+    double g[] = next.batchBackError.getData();
+    double d[] = batchDelta.getData();
+
+    // Die Reihen des zurckgefhrten Fehlers haben einen Biaseintrag mehr
+    for (int p = 0; p < batchOutput.getRows(); p++)
+      activation.derivativeInto(y, p * n, g, p * (n + 1), d, p * n, n);
+
+    return batchDelta;
+  }
+
+
+  /**
+   * Berechnet die Deltawerte des Outputlayers fr den zuletzt eingegebenen
+   * Stapel. Die Deltawerte eines Patterns werden mit seiner Prioritt
+   * multipliziert; das entspricht dem mehrfachen Eintrainieren des Patterns,
+   * da alle weiteren Deltawerte und Gradienten linear von ihnen abhngen.
+   * 
+   * @param trainingOut Die Soll-Ausgabevektoren, einer pro Reihe.
+   * @param priorities  Die Prioritten der Patterns.
+   * @return Die Deltawerte, einer pro Reihe.
+   */
+  public Matrix calcBatchDelta(Matrix trainingOut, Vektor priorities) {
+    for (int p = 0; p < batchOutput.getRows(); p++) {
+      for (int u = 0; u < getSize(); u++) {
+        double o = batchOutput.get(p, u);
+        batchDelta.set(p, u, priorities.get(p) * (trainingOut.get(p, u) - o));
+      }
+    }
+
+    double d[] = batchDelta.getData();
+    activation.derivativeInto(batchOutput.getData(), 0, d, 0, d, 0, d.length);
+
+    return batchDelta;
+  }
+
+
   /**
    * Gibt die Matrix der Gewichtswerte zurck. Diese ergeben, multipliziert mit
-   * dem erweiterten Eingabevektor, den Ausgabevektor.
+   * dem um eine 1 erweiterten Eingabevektor, den Ausgabevektor.
    * 
    * @return Die Gewichtsmatrix.
    */
@@ -206,6 +561,49 @@ public class Layer {
   }
 
 
+  /**
+   * Verschiebt die Gewichte in den Speicher einer Arena auerhalb des
+   * Java-Heaps. Nach dem Schlieen der Arena kann der Layer nicht mehr
+   * verwendet werden.
+   * 
+   * @param arena Die Arena, in die die Gewichte kopiert werden.
+   */
+  public void storeWeights(MatrixArena arena) {
+    weights = arena.store(weights);
+  }
+
+
+  /**
+   * Dnnt die Gewichte aus (magnitude pruning): Gewichte, deren Betrag
+   * kleiner als threshold ist, werden entfernt. Die Gewichtsmatrix wird
+   * allerdings nur dann durch eine dnn besetzte ersetzt (siehe SparseMatrix),
+   * wenn dabei mindestens der Anteil minSparsity aller Gewichte entfllt,
+   * denn sonst ist die dicht besetzte Matrix schneller. Auerdem muss die
+   * dnn besetzte Matrix weniger Speicher belegen als die dicht besetzte,
+   * bei FLOAT also mehr als die Hlfte der Gewichte entfallen.
+   * 
+   * @param threshold   Die Schranke, unterhalb derer Gewichte entfernt
+   *                    werden.
+   * @param minSparsity Der Mindestanteil entfernter Gewichte (zwischen 0 und
+   *                    1).
+   * @param precision   Die Genauigkeit der Gewichte, in der auch die dnn
+   *                    besetzte Matrix gespeichert wird.
+   * @return true, falls die Gewichte ersetzt wurden.
+   */
+  public boolean prune(double threshold, double minSparsity,
+      Precision precision) {
+    SparseMatrix sparse = new SparseMatrix(weights, threshold, precision);
+    long dense = (long) weights.getRows() * weights.getCols()
+        * precision.getBytes();
+
+    if (sparse.getSparsity() < minSparsity || sparse.getByteSize() >= dense)
+      return false;
+
+    weights = sparse;
+    return true;
+  }
+
+
   /**
    * Gibt die Matrix der Gewichtsvernderungen zurck. Diese Vernderungen
    * werden auf die Gewichtswerte addiert.
@@ -228,16 +626,35 @@ public class Layer {
 
 
   /**
-   * Gibt den angegebenen Gradienten zurck. Der Gradient ist eine Matrix der
-   * Gradienten der jeweiligen Gewichtswerte. Die Gradienten sind von aktuell
-   * bis alt geordnet.
+   * Gibt den Gradienten der aktuellen Epoche zurck. Der Gradient ist eine
+   * Matrix der Gradienten der jeweiligen Gewichtswerte.
    * 
-   * @param i Ein Integer-Wert zwischen 0 und 2, fr einen der drei
-   *          gespeicherten Gradienten.
-   * @return Gibt den i-ten Gradienten zurck.
+   * @return Der aktuelle Gradient.
    */
-  public Matrix getGradient(int i) {
-    return gradients.get(i);
+  public Matrix getGradient() {
+    return gradient;
+  }
+
+
+  /**
+   * Gibt die Vorzeichen der Gradienten der vorigen Epoche zurck, zeilenweise
+   * wie die Gewichte (siehe gradientSigns). Das Array wird vom
+   * RPROP-Training direkt verndert.
+   * 
+   * @return Die Vorzeichen der vorigen Gradienten.
+   */
+  byte[] getGradientSigns() {
+    return gradientSigns;
+  }
+
+
+  /**
+   * Gibt die Anzahl der bisherigen nderungen der Gewichte zurck.
+   * 
+   * @return Die Anzahl der bisherigen nderungen.
+   */
+  public int getUpdates() {
+    return updates;
   }
 
 
@@ -249,21 +666,47 @@ public class Layer {
    * @throws Exception Mgliche Berechnungsfehler.
    */
   public void addGradient(Matrix g) throws Exception {
-    gradients.get(0).add(g);
+    gradient.add(g);
+  }
+
+
+  /**
+   * Addiert den Gradienten eines Trainingspatterns auf den aktuellen
+   * Gradienten. Dieser ist das dyadische Produkt der Deltawerte mit dem um
+   * eine 1 erweiterten Eingabevektor (siehe
+   * LinearAlgebraBackend.addAffineOuterProduct).
+   * 
+   * @param delta Die Deltawerte des Layers zum aktuellen Eingabevektor.
+   * @throws Exception Falls die Lnge der Deltawerte nicht zum Layer passt.
+   */
+  public void addGradient(Vektor delta) throws Exception {
+    backend.addAffineOuterProduct(gradient, delta, input, execution);
+  }
+
+
+  /**
+   * Addiert die Gradienten aller Patterns des zuletzt eingegebenen Stapels
+   * auf den aktuellen Gradienten (siehe addGradient(Vektor)).
+   * 
+   * @param delta Die Deltawerte des Layers zum Stapel, einer pro Reihe.
+   * @throws Exception Falls die Deltawerte nicht zum Layer passen.
+   */
+  public void addBatchGradient(Matrix delta) throws Exception {
+    backend.addAffineOuterProducts(gradient, delta, batchInput, execution);
   }
 
 
   /**
    * Addiert die Gewichtsvernderungsmatrix unter der Bercksichtigung des
-   * aktuellen Gradienten (siehe Wikipedia) auf die Gewichtsmatrix. "Schiebt"
-   * eine neue Matrix in die Reihe der Gradienten.
+   * aktuellen Gradienten (siehe Wikipedia) auf die Gewichtsmatrix. Danach
+   * wird der Gradient fr die nchste Epoche geleert.
    * 
    * @throws Exception Mgliche Berechnungsfehler.
    */
   public void applyWeightChanges() throws Exception {
-    weights.add(Matrix.coordinateMult(weightsDiff,
-        getGradient(0).apply(MathHelper::sgn)));
+    backend.addSignStep(weights, weightsDiff, gradient);
 
-    gradients.push(new Matrix(weights.getRows(), weights.getCols()));
+    gradient.fill(0);
+    updates++;
   }
 }
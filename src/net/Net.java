@@ -4,7 +4,16 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicReference;
 
+import math.Activation;
+import math.Execution;
+import math.LinearAlgebraBackend;
+import math.Matrix;
+import math.MatrixArena;
+import math.Precision;
+import math.Sigmoid;
 import math.Vektor;
 
 
@@ -35,6 +44,50 @@ public class Net implements Iterable<Layer> {
    */
   private final int estimateLength;
 
+  /**
+   * Legt fest, ob die Matrix-Operationen des Netzes parallel ausgefhrt
+   * werden.
+   */
+  private Execution execution;
+
+  /**
+   * Die Genauigkeit, in der die Gewichte der Layer gespeichert werden.
+   */
+  private final Precision precision;
+
+  /**
+   * Der Startwert des Zufallsgenerators, mit dem die Gewichte erzeugt wurden.
+   */
+  private final long seed;
+
+  /**
+   * Die Implementierung der Rechenoperationen, mit der das Netz rechnet.
+   */
+  private LinearAlgebraBackend backend;
+
+  /**
+   * Die Berechnungsart der Sigmoid-Funktion in allen Layern.
+   */
+  private Sigmoid sigmoid;
+
+  /**
+   * Die Workspaces fr feed(Vektor), einer pro Thread.
+   */
+  private final ThreadLocal<Workspace> workspaces = ThreadLocal
+      .withInitial(() -> new Workspace(this));
+
+  /**
+   * Der zuletzt verffentlichte Stand der Gewichte, mit dem alle Eingaben
+   * ber feed rechnen (siehe publish).
+   */
+  private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+  /**
+   * Abgelste Stnde, die bei der nchsten Verffentlichung wiederverwendet
+   * werden, sobald keine Eingabe mehr mit ihnen rechnet.
+   */
+  private final List<Snapshot> spareSnapshots = new ArrayList<>();
+
 
   /**
    * Erstellt ein neuronales Netz.
@@ -45,6 +98,41 @@ public class Net implements Iterable<Layer> {
    */
   public Net(int estimateLength, List<Integer> hiddenLayers,
       int numberChartValues) {
+    this(estimateLength, hiddenLayers, numberChartValues, Precision.DOUBLE);
+  }
+
+
+  /**
+   * Erstellt ein neuronales Netz, dessen Gewichte in der angegebenen
+   * Genauigkeit gespeichert werden. Dies gilt fr das Training ebenso wie fr
+   * die Ausgabe.
+   * 
+   * @param estimateLength Die Dauer, ber die geschtzt wird.
+   * @param structure      Die von der graphischen Oberflche eingegebene
+   *                       Struktur.
+   * @param precision      Die Genauigkeit der Gewichte.
+   */
+  public Net(int estimateLength, List<Integer> hiddenLayers,
+      int numberChartValues, Precision precision) {
+    this(estimateLength, hiddenLayers, numberChartValues, precision,
+        new SplittableRandom().nextLong());
+  }
+
+
+  /**
+   * Erstellt ein neuronales Netz, dessen Gewichte aus dem angegebenen
+   * Startwert erzeugt werden. Netze mit gleicher Struktur und gleichem
+   * Startwert besitzen dieselben Anfangsgewichte, Trainings- und
+   * Messlufe lassen sich so wiederholen.
+   * 
+   * @param estimateLength Die Dauer, ber die geschtzt wird.
+   * @param structure      Die von der graphischen Oberflche eingegebene
+   *                       Struktur.
+   * @param precision      Die Genauigkeit der Gewichte.
+   * @param seed           Der Startwert des Zufallsgenerators.
+   */
+  public Net(int estimateLength, List<Integer> hiddenLayers,
+      int numberChartValues, Precision precision, long seed) {
     this.structure = new ArrayList<>(hiddenLayers);
 
     // Der InputLayer hat die Lnge estimateLength * die Anzahl der
@@ -53,22 +141,218 @@ public class Net implements Iterable<Layer> {
     this.structure.add(0, estimateLength * numberChartValues);
     this.structure.add(1);
     this.estimateLength = estimateLength;
+    this.precision = precision;
+    this.seed = seed;
 
+    SplittableRandom random = new SplittableRandom(seed);
     layers = new ArrayList<>();
     for (int i = 1; i < this.structure.size(); i++)
-      layers.add(new Layer(this.structure.get(i), this.structure.get(i - 1)));
+      layers.add(new Layer(this.structure.get(i), this.structure.get(i - 1),
+          precision, random.split()));
+
+    setExecution(Execution.SEQUENTIAL);
+    setBackend(LinearAlgebraBackend.getDefault());
+    setSigmoid(Sigmoid.EXACT);
+    publish();
+  }
+
+
+  /**
+   * Erstellt ein Netz aus bereits vorhandenen Layern, etwa beim Laden eines
+   * gespeicherten Netzes (siehe Checkpoint).
+   * 
+   * @param estimateLength Die Dauer, ber die geschtzt wird.
+   * @param structure      Die Gren aller Layer einschlielich des
+   *                       Inputlayers.
+   * @param precision      Die Genauigkeit der Gewichte.
+   * @param seed           Der Startwert, mit dem die Gewichte einst erzeugt
+   *                       wurden.
+   * @param sigmoid        Die Berechnungsart der Sigmoid-Funktion.
+   * @param layers         Die Layer.
+   */
+  Net(int estimateLength, List<Integer> structure, Precision precision,
+      long seed, Sigmoid sigmoid, List<Layer> layers) {
+    this.structure = new ArrayList<>(structure);
+    this.estimateLength = estimateLength;
+    this.precision = precision;
+    this.seed = seed;
+    this.layers = new ArrayList<>(layers);
+
+    setExecution(Execution.SEQUENTIAL);
+    setBackend(LinearAlgebraBackend.getDefault());
+    this.sigmoid = sigmoid;
+    publish();
+  }
+
+
+  /**
+   * Erstellt ein Netz, dessen Layer die Gewichte des angegebenen Netzes
+   * mitbenutzen, aber eigene Ausgaben, Deltawerte und Gradienten besitzen
+   * (siehe Layer(Layer)). Es rechnet sequentiell und verffentlicht keinen
+   * eigenen Stand der Gewichte (siehe publish).
+   * 
+   * @param shared Das Netz, dessen Gewichte mitbenutzt werden.
+   */
+  Net(Net shared) {
+    structure = shared.structure;
+    estimateLength = shared.estimateLength;
+    precision = shared.precision;
+    seed = shared.seed;
+
+    layers = new ArrayList<>();
+    for (Layer layer : shared.layers)
+      layers.add(new Layer(layer));
+
+    execution = Execution.SEQUENTIAL;
+    share(shared);
+  }
+
+
+  /**
+   * bernimmt fr alle Layer Gewichte, Backend und Aktivierungsfunktion des
+   * angegebenen Netzes gleicher Struktur (siehe Net(Net)).
+   * 
+   * @param shared Das Netz, dessen Gewichte mitbenutzt werden.
+   */
+  synchronized void share(Net shared) {
+    backend = shared.backend;
+    sigmoid = shared.sigmoid;
+
+    for (int i = 0; i < layers.size(); i++)
+      get(i).share(shared.get(i));
   }
 
 
   /**
    * Schickt einen Eingabevektor durch das neuronale Netz und liefert dabei den
-   * Ausgabevektor des letzten Layers.
+   * Ausgabevektor des letzten Layers. Gerechnet wird mit dem zuletzt
+   * verffentlichten Stand der Gewichte (siehe publish), die
+   * Zwischenergebnisse landen in einem eigenen Workspace des aufrufenden
+   * Threads. Die Methode ist deshalb nicht synchronisiert und kann
+   * gleichzeitig zum Training aufgerufen werden, ohne auf dieses zu warten
+   * oder es zu stren.
+   * 
+   * @param input Der Eingabevektor, der durch das Netz geschickt werden soll.
+   * @return Eine Kopie des Ausgabevektors des Netzes.
+   * @throws Exception Mgliche Berechnungsfehler.
+   */
+  public Vektor feed(Vektor input) throws Exception {
+    return new Vektor(feed(input, workspaces.get()));
+  }
+
+
+  /**
+   * Schickt einen Eingabevektor durch das neuronale Netz, wobei die Ausgaben
+   * aller Layer in den bergebenen Workspace geschrieben werden. Gerechnet
+   * wird mit dem zuletzt verffentlichten Stand der Gewichte (siehe publish).
+   * Der Zustand des Netzes und seiner Layer bleibt unverndert, es entstehen
+   * keine neuen Objekte, und es wird nie auf eine Sperre gewartet. Jeder
+   * Thread bentigt einen eigenen Workspace.
+   * 
+   * @param input     Der Eingabevektor, der durch das Netz geschickt werden
+   *                  soll.
+   * @param workspace Der Workspace fr die Zwischenergebnisse.
+   * @return Den Ausgabevektor des letzten Layers aus dem Workspace. Er wird
+   *         bei der nchsten Eingabe mit demselben Workspace berschrieben.
+   * @throws Exception Falls Eingabe oder Workspace nicht zum Netz passen.
+   */
+  public Vektor feed(Vektor input, Workspace workspace) throws Exception {
+    Snapshot s = acquireSnapshot();
+
+    try {
+      return s.feed(input, workspace, execution);
+    } finally {
+      s.release();
+    }
+  }
+
+
+  /**
+   * Meldet eine Eingabe beim aktuellen Stand der Gewichte an. Wird der Stand
+   * gerade abgelst, wird es mit dem neuen erneut versucht. So kann ein Stand
+   * nicht wiederverwendet werden, whrend noch mit ihm gerechnet wird.
+   * 
+   * @return Der angemeldete Stand, der nach der Eingabe mit release wieder
+   *         abgemeldet werden muss.
+   */
+  private Snapshot acquireSnapshot() {
+    while (true) {
+      Snapshot s = snapshot.get();
+      s.retain();
+
+      if (snapshot.get() == s)
+        return s;
+
+      s.release();
+    }
+  }
+
+
+  /**
+   * Verffentlicht den aktuellen Stand der Gewichte fr alle folgenden
+   * Eingaben ber feed (siehe Training.setPublishInterval). Die Gewichte
+   * werden dafr in ihrer jeweiligen Speicherart kopiert (siehe
+   * Matrix.copy), laufende Eingaben rechnen mit dem vorigen Stand zu Ende.
+   * Abgelste Stnde werden wiederverwendet, sobald sie nicht mehr gelesen
+   * werden; es werden hchstens zwei davon aufgehoben. Solange
+   * gleichzeitig keine Eingabe langsamer ist als zwei Verffentlichungen,
+   * entsteht so kein neuer Speicher.
+   * 
+   * @return Die fortlaufende Nummer des verffentlichten Stands.
+   */
+  public synchronized long publish() {
+    Snapshot next = null;
+
+    for (int i = 0; i < spareSnapshots.size(); i++) {
+      if (spareSnapshots.get(i).isFree()) {
+        next = spareSnapshots.remove(i);
+        break;
+      }
+    }
+
+    if (next == null)
+      next = new Snapshot(this);
+
+    Snapshot previous = snapshot.get();
+    long version = previous == null ? 1 : previous.getVersion() + 1;
+
+    try {
+      next.copy(this, version);
+    } catch (Exception e) {
+      // Die Matrizen des Stands entstehen aus den Gewichten selbst
+      throw new IllegalStateException(e);
+    }
+
+    snapshot.set(next);
+
+    if (previous != null && spareSnapshots.size() < 2)
+      spareSnapshots.add(previous);
+
+    return version;
+  }
+
+
+  /**
+   * Gibt die fortlaufende Nummer des Stands der Gewichte zurck, mit dem
+   * Eingaben ber feed gerade rechnen.
+   * 
+   * @return Die Nummer des zuletzt verffentlichten Stands.
+   */
+  public long getPublishedVersion() {
+    return snapshot.get().getVersion();
+  }
+
+
+  /**
+   * Schickt einen Eingabevektor durch das neuronale Netz. Anders als bei feed
+   * wird der Ausgabevektor des letzten Layers selbst zurckgegeben, der beim
+   * nchsten Durchlauf berschrieben wird.
    * 
    * @param input Der Eingabevektor, der durch das Netz geschickt werden soll.
-   * @return Den Ausgabevektor des Netzes.
+   * @return Den Ausgabevektor des letzten Layers.
    * @throws Exception Mgliche Berechnungsfehler.
    */
-  public synchronized Vektor feed(Vektor input) throws Exception {
+  synchronized Vektor forward(Vektor input) throws Exception {
     first().feed(input);
 
     for (int i = 1; i < layers.size(); i++)
@@ -78,6 +362,92 @@ public class Net implements Iterable<Layer> {
   }
 
 
+  /**
+   * Schickt einen ganzen Stapel von Eingabevektoren durch das neuronale Netz.
+   * Jeder Layer berechnet dabei ein einziges Matrix-Matrix-Produkt statt
+   * eines Matrix-Vektor-Produkts pro Eingabe. Wie bei feed wird mit dem
+   * zuletzt verffentlichten Stand der Gewichte gerechnet (siehe publish),
+   * die Methode kann also gleichzeitig zum Training aufgerufen werden.
+   * 
+   * @param inputs Die Eingabevektoren, einer pro Reihe.
+   * @return Die Ausgabevektoren, einer pro Reihe.
+   * @throws Exception Mgliche Berechnungsfehler.
+   */
+  public Matrix feedBatch(Matrix inputs) throws Exception {
+    Snapshot s = acquireSnapshot();
+
+    try {
+      return s.feedBatch(inputs, execution);
+    } finally {
+      s.release();
+    }
+  }
+
+
+  /**
+   * Schickt einen ganzen Stapel von Eingabevektoren durch das neuronale Netz.
+   * Anders als bei feedBatch wird mit den aktuellen Gewichten der Layer
+   * gerechnet und die Ausgabematrix des letzten Layers selbst zurckgegeben.
+   * Das Training verwendet die dabei gespeicherten Ausgaben weiter.
+   * 
+   * @param inputs Die Eingabevektoren, einer pro Reihe.
+   * @return Die Ausgabevektoren des letzten Layers, einer pro Reihe.
+   * @throws Exception Mgliche Berechnungsfehler.
+   */
+  synchronized Matrix forwardBatch(Matrix inputs) throws Exception {
+    Matrix out = inputs;
+
+    for (Layer layer : layers)
+      out = layer.feedBatch(out);
+
+    return out;
+  }
+
+
+  /**
+   * Verschiebt die Gewichte aller Layer in den Speicher einer Arena auerhalb
+   * des Java-Heaps (siehe MatrixArena). Das Netz kann danach nur so lange
+   * trainiert werden, bis die Arena geschlossen wird. Der Stand wird sofort
+   * verffentlicht, sodass auch die Kopien fr feed auerhalb des Java-Heaps
+   * liegen (siehe publish).
+   * 
+   * @param arena Die Arena, in die die Gewichte kopiert werden.
+   */
+  public synchronized void storeWeights(MatrixArena arena) {
+    for (Layer layer : layers)
+      layer.storeWeights(arena);
+
+    publish();
+  }
+
+
+  /**
+   * Dnnt die Gewichte aller Layer aus (siehe Layer.prune). Ein Layer wird nur
+   * umgestellt, wenn mindestens der Anteil minSparsity seiner Gewichte
+   * entfllt und sie dnn besetzt weniger Speicher belegen. Die Eingabe
+   * kostet dann nur noch so viele Multiplikationen, wie Gewichte brig
+   * bleiben. Die Gewichte behalten die Genauigkeit des Netzes. Entfernte
+   * Gewichte bleiben auch bei weiterem Training 0. Der ausgednnte Stand wird
+   * sofort verffentlicht (siehe publish).
+   * 
+   * @param threshold   Die Schranke, unterhalb derer Gewichte entfernt
+   *                    werden.
+   * @param minSparsity Der Mindestanteil entfernter Gewichte pro Layer.
+   * @return Die Anzahl der umgestellten Layer.
+   */
+  public synchronized int prune(double threshold, double minSparsity) {
+    int count = 0;
+
+    for (Layer layer : layers) {
+      if (layer.prune(threshold, minSparsity, precision))
+        count++;
+    }
+
+    publish();
+    return count;
+  }
+
+
   /**
    * Liefert einen vereinfachten Zugriff auf einen Layer.
    * 
@@ -162,4 +532,128 @@ public class Net implements Iterable<Layer> {
   public int getEstimateLength() {
     return estimateLength;
   }
+
+
+  /**
+   * Gibt die Genauigkeit zurck, in der die Gewichte der Layer gespeichert
+   * werden.
+   * 
+   * @return Die Genauigkeit der Gewichte.
+   */
+  public Precision getPrecision() {
+    return precision;
+  }
+
+
+  /**
+   * Gibt den Startwert des Zufallsgenerators zurck, mit dem die Gewichte
+   * erzeugt wurden.
+   * 
+   * @return Der Startwert des Zufallsgenerators.
+   */
+  public long getSeed() {
+    return seed;
+  }
+
+
+  /**
+   * Gibt zurck, ob die Matrix-Operationen des Netzes parallel ausgefhrt
+   * werden.
+   * 
+   * @return Den Ausfhrungsmodus des Netzes.
+   */
+  public Execution getExecution() {
+    return execution;
+  }
+
+
+  /**
+   * Legt fr das Netz und alle seine Layer fest, ob die Matrix-Operationen
+   * parallel ausgefhrt werden. Bei kleinen Layern wird auch im parallelen
+   * Modus sequentiell gerechnet.
+   * 
+   * @param execution Der Ausfhrungsmodus.
+   */
+  public void setExecution(Execution execution) {
+    this.execution = execution;
+
+    for (Layer layer : layers)
+      layer.setExecution(execution);
+  }
+
+
+  /**
+   * Gibt die Implementierung der Rechenoperationen zurck, mit der das Netz
+   * rechnet.
+   * 
+   * @return Die Implementierung der Rechenoperationen.
+   */
+  public LinearAlgebraBackend getBackend() {
+    return backend;
+  }
+
+
+  /**
+   * Legt fr das Netz und alle seine Layer die Implementierung der
+   * Rechenoperationen fest. Voreingestellt ist die ber die Systemeigenschaft
+   * "math.backend" gewhlte (siehe LinearAlgebraBackend.getDefault).
+   * 
+   * @param backend Die Implementierung der Rechenoperationen.
+   */
+  public synchronized void setBackend(LinearAlgebraBackend backend) {
+    this.backend = backend;
+
+    for (Layer layer : layers)
+      layer.setBackend(backend);
+
+    if (snapshot.get() != null)
+      publish();
+  }
+
+
+  /**
+   * Gibt die Berechnungsart der Sigmoid-Funktion in den Layern zurck.
+   * 
+   * @return Die Berechnungsart der Sigmoid-Funktion.
+   */
+  public Sigmoid getSigmoid() {
+    return sigmoid;
+  }
+
+
+  /**
+   * Legt fr alle Layer mit der Sigmoid-Funktion als Aktivierungsfunktion
+   * deren Berechnungsart fest. Die Nherungen (siehe Sigmoid) beschleunigen
+   * Eingabe und Training, ihr Fehler bleibt dabei unter der jeweils
+   * angegebenen Schranke. Layer mit anderen Aktivierungsfunktionen bleiben
+   * unverndert.
+   * 
+   * @param sigmoid Die Berechnungsart der Sigmoid-Funktion.
+   */
+  public synchronized void setSigmoid(Sigmoid sigmoid) {
+    this.sigmoid = sigmoid;
+
+    for (Layer layer : layers) {
+      if (layer.getActivation() instanceof Sigmoid)
+        layer.setActivation(sigmoid);
+    }
+
+    if (snapshot.get() != null)
+      publish();
+  }
+
+
+  /**
+   * Legt die Aktivierungsfunktion eines Layers fest (siehe Activation). Ohne
+   * Angabe rechnen alle Layer mit der Sigmoid-Funktion.
+   * 
+   * @param i          Der Index des Layers.
+   * @param activation Die Aktivierungsfunktion.
+   */
+  public synchronized void setActivation(int i, Activation activation) {
+    get(i).setActivation(activation);
+
+    if (snapshot.get() != null)
+      publish();
+  }
 }
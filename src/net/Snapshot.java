@@ -0,0 +1,185 @@
+package net;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import math.Activation;
+import math.Execution;
+import math.LinearAlgebraBackend;
+import math.Matrix;
+import math.Vektor;
+
+
+/**
+ * Ein Stand der Gewichte eines neuronalen Netzes, den das Training nach einer
+ * Epoche verffentlicht (siehe Net.publish). Eingaben rechnen mit einem
+ * solchen Stand statt mit den Gewichten der Layer, die sich whrend des
+ * Trainings stndig ndern. Sie sehen so immer ein vollstndiges Modell und
+ * mssen nicht auf das Training warten.
+ *
+ * Die Kopien haben dieselbe Speicherart wie die Gewichte der Layer (siehe
+ * Matrix.copy). Ausgednnte Layer rechnen so auch hier nur mit den brigen
+ * Gewichten, Gewichte in einfacher Genauigkeit bleiben float, und Gewichte
+ * auerhalb des Java-Heaps werden auch dort kopiert.
+ *
+ * Solange ein Stand verffentlicht ist, wird er nicht verndert. Ein
+ * abgelster Stand wird fr eine sptere Verffentlichung wiederverwendet,
+ * sobald keine Eingabe mehr mit ihm rechnet. Dafr zhlt jeder Stand seine
+ * laufenden Eingaben.
+ *
+ * @author Roland Vlker
+ */
+final class Snapshot {
+
+  /**
+   * Kopien der Gewichtsmatrizen aller Layer.
+   */
+  private final Matrix weights[];
+
+  /**
+   * Die Gewichtsmatrizen der Layer, von denen weights kopiert wurde. Ersetzt
+   * ein Layer seine Matrix (etwa durch Net.prune oder Net.storeWeights),
+   * wird die Kopie in der neuen Speicherart angelegt.
+   */
+  private final Matrix sources[];
+
+  /**
+   * Die Aktivierungsfunktionen der Layer beim Verffentlichen.
+   */
+  private final Activation activations[];
+
+  /**
+   * Die Implementierung der Rechenoperationen beim Verffentlichen.
+   */
+  private LinearAlgebraBackend backend;
+
+  /**
+   * Die fortlaufende Nummer der Verffentlichung.
+   */
+  private long version;
+
+  /**
+   * Die Anzahl der Eingaben, die gerade mit diesem Stand rechnen.
+   */
+  private final AtomicInteger readers;
+
+
+  /**
+   * Legt einen leeren Stand passend zur Struktur des Netzes an. Die Matrizen
+   * entstehen erst beim ersten bernehmen der Gewichte (siehe copy).
+   *
+   * @param net Das Netz, dessen Gewichte der Stand aufnehmen soll.
+   */
+  Snapshot(Net net) {
+    weights = new Matrix[net.getStructure().size() - 1];
+    sources = new Matrix[weights.length];
+    activations = new Activation[weights.length];
+    readers = new AtomicInteger();
+  }
+
+
+  /**
+   * bernimmt die aktuellen Gewichte und Einstellungen des Netzes. Der Stand
+   * darf dabei weder verffentlicht sein noch gelesen werden.
+   *
+   * @param net     Das Netz, dessen Gewichte bernommen werden.
+   * @param version Die Nummer der Verffentlichung.
+   * @throws Exception Falls die Gewichte nicht zum Stand passen.
+   */
+  void copy(Net net, long version) throws Exception {
+    for (int i = 0; i < weights.length; i++) {
+      Matrix w = net.get(i).getWeights();
+
+      if (sources[i] == w) {
+        w.copyInto(weights[i]);
+      } else {
+        weights[i] = w.copy();
+        sources[i] = w;
+      }
+
+      activations[i] = net.get(i).getActivation();
+    }
+
+    backend = net.getBackend();
+    this.version = version;
+  }
+
+
+  /**
+   * Meldet eine Eingabe an, die mit diesem Stand rechnen will.
+   */
+  void retain() {
+    readers.incrementAndGet();
+  }
+
+
+  /**
+   * Meldet eine Eingabe wieder ab (siehe retain).
+   */
+  void release() {
+    readers.decrementAndGet();
+  }
+
+
+  /**
+   * Gibt zurck, ob gerade keine Eingabe mit diesem Stand rechnet.
+   *
+   * @return true, falls der Stand wiederverwendet werden darf.
+   */
+  boolean isFree() {
+    return readers.get() == 0;
+  }
+
+
+  /**
+   * Gibt die fortlaufende Nummer der Verffentlichung zurck.
+   *
+   * @return Die Nummer der Verffentlichung.
+   */
+  long getVersion() {
+    return version;
+  }
+
+
+  /**
+   * Schickt einen Eingabevektor mit den Gewichten dieses Stands durch das
+   * Netz (siehe Net.feed(Vektor, Workspace)).
+   *
+   * @param input     Der Eingabevektor.
+   * @param workspace Der Workspace fr die Zwischenergebnisse.
+   * @param mode      Der Ausfhrungsmodus.
+   * @return Den Ausgabevektor des letzten Layers aus dem Workspace.
+   * @throws Exception Falls Eingabe oder Workspace nicht zum Netz passen.
+   */
+  Vektor feed(Vektor input, Workspace workspace, Execution mode)
+      throws Exception {
+    Vektor out = input;
+
+    for (int i = 0; i < weights.length; i++)
+      out = backend.affineInto(weights[i], out, activations[i],
+          workspace.get(i), mode);
+
+    return out;
+  }
+
+
+  /**
+   * Schickt einen ganzen Stapel von Eingabevektoren mit den Gewichten dieses
+   * Stands durch das Netz (siehe Net.feedBatch). Die Ausgaben jedes Layers
+   * landen in einer neuen Matrix, sodass gleichzeitige Aufrufe sich nicht
+   * stren.
+   *
+   * @param inputs Die Eingabevektoren, einer pro Reihe.
+   * @param mode   Der Ausfhrungsmodus.
+   * @return Die Ausgabevektoren des letzten Layers, einer pro Reihe.
+   * @throws Exception Falls die Eingabevektoren nicht zum Netz passen.
+   */
+  Matrix feedBatch(Matrix inputs, Execution mode) throws Exception {
+    Matrix out = inputs;
+
+    for (int i = 0; i < weights.length; i++)
+      out = backend.affineInto(weights[i], out, activations[i],
+          new Matrix(inputs.getRows(), weights[i].getRows()), mode);
+
+    return out;
+  }
+}
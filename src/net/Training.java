@@ -1,5 +1,9 @@
 package net;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
 import data.DataPattern;
 import math.Matrix;
 import math.Vektor;
@@ -45,6 +49,40 @@ public class Training {
    */
   private int maxEpochs;
 
+  /**
+   * Die Anzahl der Patterns, die gemeinsam als Stapel durch das Netz
+   * geschickt werden. Bei 1 wird jedes Pattern einzeln trainiert.
+   */
+  private int batchSize;
+
+  /**
+   * Die Anzahl der Threads, auf die die Patterns einer Epoche aufgeteilt
+   * werden. Bei 1 wird im aufrufenden Thread trainiert.
+   */
+  private int threads;
+
+  /**
+   * Nach wie vielen Epochen der Stand der Gewichte fr die Eingaben ber
+   * Net.feed verffentlicht wird.
+   */
+  private int publishInterval;
+
+  /**
+   * Die Anzahl der Epochen seit der letzten Verffentlichung.
+   */
+  private int unpublished;
+
+  /**
+   * Trainiert im aufrufenden Thread direkt auf dem Netz.
+   */
+  private final Worker worker;
+
+  /**
+   * Die Arbeiter des parallelen Trainings, einer pro Thread. Sie werden erst
+   * bei Bedarf angelegt.
+   */
+  private Worker workers[];
+
 
   /**
    * Erzeugt ein Objekt, das das angegebene Netz trainieren soll. Hierbei werden
@@ -61,6 +99,10 @@ public class Training {
     c_m = decreaseFactor;
 
     epoch = 0;
+    batchSize = 1;
+    threads = 1;
+    publishInterval = 1;
+    worker = new Worker(net);
   }
 
 
@@ -70,58 +112,45 @@ public class Training {
    */
 
   /**
-   * Implementiert die gewhnliche Backpropagation. Hierbei handelt es sich um
-   * die Fehlerrckbertragung vom letzten (Ausgabe-)Layer bis hin zum ersten
-   * Hidden-Layer.
-   * 
-   * @param netOutput Die aktuelle Netzausgabe.
-   * @param pattern   Das aktuelle Trainingspattern.
-   * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
-   *                   Matrizen.
-   */
-  private void backpropagation(Vektor netOutput, DataPattern pattern)
-      throws Exception {
-    var layerIter = net.end();
-    Layer layer = layerIter.previous();
-
-    var delta = Vektor.subtract(pattern.getOutput(), netOutput)
-        .mult(layer.getLambda());
-    layer.addGradient(Vektor.dyadicProduct(delta, layer.getInput()));
-
-    while (layerIter.hasPrevious()) {
-      delta = Matrix.mult(delta, layer.getWeights()).dropLast();
-      layer = layerIter.previous();
-      delta.mult(layer.getLambda());
-
-      layer.addGradient(Vektor.dyadicProduct(delta, layer.getInput()));
-    }
-  }
-
-
-  /**
-   * Ein Trainingsdurchlauf. Hier werden alle Patterns einmal (bzw. so oft wie
-   * Pattern.getPriority() es angibt) eintrainiert. Das bedeutet, pro Pattern
-   * wird die Eingabe durch das Netz geschickt und die Ausgabe wird ber eine
-   * Backpropagation korrigiert.
+   * Ein Trainingsdurchlauf. Hier werden alle Patterns einmal eintrainiert,
+   * gewichtet mit Pattern.getPriority(). Das bedeutet, pro Pattern wird die
+   * Eingabe durch das Netz geschickt und die Ausgabe wird ber eine
+   * Backpropagation korrigiert. Der Gradient eines Patterns geht dabei mit
+   * seiner Prioritt multipliziert ein, was dem mehrfachen Eintrainieren
+   * entspricht, aber nur einen Durchlauf kostet.
    * 
    * Nachdem die Patterns alle eintrainiert wurden, werden die gespeicherten
    * nderungen bertragen (Batch-Training).
+   * 
+   * Ist eine Stapelgre grer als 1 eingestellt, werden die Patterns
+   * stapelweise mit Matrix-Matrix-Produkten durch das Netz geschickt (siehe
+   * setBatchSize). Die Gewichte werden in beiden Fllen erst am Ende des
+   * Durchlaufs verndert. Das erlaubt es auch, die Patterns auf mehrere
+   * Threads aufzuteilen (siehe setThreads). Anschlieend wird der neue Stand
+   * der Gewichte verffentlicht (siehe setPublishInterval).
+   * 
+   * Ein Durchlauf hlt die Sperre dieses Objekts. Wer zusammenpassende
+   * Gewichte und Schrittweiten braucht, etwa zum Speichern (siehe
+   * Checkpoint.write), synchronisiert auf das Training und erhlt so den
+   * Stand zwischen zwei Epochen, ohne das Training anhalten zu mssen.
    */
-  public void train() {
+  public synchronized void train() {
     try {
-      for (DataPattern p : patterns) {
-        // Wird "priority"-mal wiederholt
-        for (int i = 0; i < p.getPriority(); i++) {
-          Vektor netOutput = net.feed(p.getInput());
-          backpropagation(netOutput, p);
-        }
-      }
+      if (threads > 1)
+        trainParallel();
+      else
+        worker.train(0, patterns.length);
 
       // Batch Training
       for (Layer layer : net) {
         calcWeightChanges(layer);
         layer.applyWeightChanges();
       }
+
+      if (++unpublished >= publishInterval) {
+        net.publish();
+        unpublished = 0;
+      }
     } catch (Exception e) {
       System.err
           .println("Training hat nicht funktioniert: Falsche Dimensionen!");
@@ -130,6 +159,73 @@ public class Training {
   }
 
 
+  /**
+   * Teilt die Patterns in so viele zusammenhngende Teile, wie Threads
+   * eingestellt sind, und trainiert sie gleichzeitig auf dem gemeinsamen
+   * ForkJoinPool. Jeder Arbeiter besitzt eine eigene Kopie des Netzes, die
+   * die Gewichte mitbenutzt, aber eigene Ausgaben, Deltawerte und Gradienten
+   * hat (siehe Net(Net)). Da die Gewichte erst nach der Epoche verndert
+   * werden, mssen sich die Threads dabei nicht abstimmen.
+   * 
+   * Anschlieend werden die Gradienten der Arbeiter in fester Reihenfolge auf
+   * die Gradienten des Netzes addiert. Das Ergebnis hngt so nicht vom
+   * zeitlichen Ablauf ab und unterscheidet sich vom Training in einem Thread
+   * nur durch die Rundung der anders zusammengefassten Summen.
+   * 
+   * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
+   *                   Matrizen.
+   */
+  private void trainParallel() throws Exception {
+    if (workers == null || workers.length != threads) {
+      workers = new Worker[threads];
+
+      for (int w = 0; w < threads; w++)
+        workers[w] = new Worker(new Net(net));
+    }
+
+    List<ForkJoinTask<Void>> tasks = new ArrayList<>();
+
+    for (int w = 0; w < threads; w++) {
+      Worker part = workers[w];
+      int from = (int) ((long) patterns.length * w / threads);
+      int to = (int) ((long) patterns.length * (w + 1) / threads);
+
+      // Gewichte, Backend usw. knnen sich seit der letzten Epoche gendert
+      // haben (z.B. durch Net.prune)
+      part.net.share(net);
+
+      tasks.add(ForkJoinTask.adapt(() -> {
+        for (Layer layer : part.net)
+          layer.getGradient().fill(0);
+
+        part.train(from, to);
+        return null;
+      }));
+    }
+
+    // Der erste Teil luft im aufrufenden Thread
+    for (int w = 1; w < threads; w++)
+      tasks.get(w).fork();
+
+    tasks.get(0).quietlyInvoke();
+
+    for (int w = 1; w < threads; w++)
+      tasks.get(w).quietlyJoin();
+
+    for (ForkJoinTask<Void> task : tasks) {
+      if (task.isCompletedAbnormally())
+        throw new Exception(task.getException());
+    }
+
+    for (int i = 0; i < net.getStructure().size() - 1; i++) {
+      Layer layer = net.get(i);
+
+      for (Worker part : workers)
+        layer.addGradient(part.net.get(i).getGradient());
+    }
+  }
+
+
   /**
    * Trainiert das Netz mit der Methode Net.train() epochs-mal.
    * 
@@ -142,6 +238,12 @@ public class Training {
     for (epoch = 0; epoch < epochs && !Thread.interrupted(); epoch++) {
       train();
     }
+
+    // Der Endstand wird in jedem Fall verffentlicht
+    if (unpublished > 0) {
+      net.publish();
+      unpublished = 0;
+    }
   }
 
 
@@ -157,58 +259,246 @@ public class Training {
    * "Computational Intelligence", Artikel "A direct adaptive method for faster
    * backpropagation learning: The Rprop algorithm").
    *
+   * Von den Gradienten der beiden vorigen Epochen werden nur die Vorzeichen
+   * bentigt. Der Layer speichert sie kompakt pro Gewicht (siehe
+   * Layer.getGradientSigns), gerechnet wird direkt auf den Arrays von
+   * Gradient und Schrittweiten.
+   *
    * @param layer Der Layer, dessen Gewichte nach dem Training angepasst werden
    *              sollen.
    * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
    *                   Matrizen.
    */
   private void calcWeightChanges(Layer layer) throws Exception {
-    if (layer.getGradient(2) == null) {
-      layer.getWeightsDiff().fill(0.1);
-      return;
-    }
-
-    for (int i = 0; i < layer.getWeights().getRows(); i++) {
-      for (int j = 0; j < layer.getWeights().getCols(); j++) {
-        double cond1 = layer.getGradient(0).get(i, j)
-            * layer.getGradient(1).get(i, j);
-        double cond2 = layer.getGradient(1).get(i, j)
-            * layer.getGradient(2).get(i, j);
-
-        if (cond1 > 0 && cond2 >= 0)
-          increaseWeightsDiff(layer, i, j);
-        else if (cond1 < 0)
-          decreaseWeightsDiff(layer, i, j);
-      }
+    double g[] = layer.getGradient().getData();
+    double diff[] = layer.getWeightsDiff().getData();
+    byte signs[] = layer.getGradientSigns();
+
+    // In den ersten beiden Epochen gibt es noch nicht genug frhere
+    // Gradienten, die Schrittweiten beginnen einheitlich bei 0.1.
+    boolean start = layer.getUpdates() < 2;
+
+    for (int k = 0; k < g.length; k++) {
+      int sign = (int) Math.signum(g[k]);
+      // cond1: Vorzeichen des aktuellen mal des vorigen Gradienten
+      int cond1 = sign * Integer.signum(signs[k]);
+      // cond2 >= 0: Das Vorzeichen hatte sich zuvor nicht umgekehrt
+      boolean cond2 = Math.abs(signs[k]) != 2;
+
+      if (start)
+        diff[k] = 0.1;
+      else if (cond1 > 0 && cond2)
+        diff[k] = increaseWeightsDiff(diff[k]);
+      else if (cond1 < 0)
+        diff[k] = decreaseWeightsDiff(diff[k]);
+
+      signs[k] = (byte) (cond1 < 0 ? 2 * sign : sign);
     }
   }
 
 
   /**
-   * Erhht die Gewichtsnderungen entsprechend des angegebenen Faktors c_p.
+   * Erhht eine Gewichtsnderung entsprechend des angegebenen Faktors c_p,
+   * hchstens auf 1.
    * 
-   * @param layer Der Layer, dessen Eintrag in der Gewichtsvernderungsmatrix
-   *              erhht werden soll.
-   * @param i     Die Reihe des Eintrags in der Matrix.
-   * @param j     Die Spalte des Eintrags in der Matrix.
-   */
-  private void increaseWeightsDiff(Layer layer, int i, int j) {
-    layer.getWeightsDiff().set(i, j,
-        Math.min(layer.getWeightsDiff().get(i, j) * c_p, 1));
+   * @param diff Die bisherige Gewichtsnderung.
+   * @return Die erhhte Gewichtsnderung.
+   */
+  private double increaseWeightsDiff(double diff) {
+    return Math.min(diff * c_p, 1);
   }
 
 
   /**
-   * Verringert die Gewichtsnderungen entsprechend des angegebenen Faktors c_p.
+   * Verringert eine Gewichtsnderung entsprechend des angegebenen Faktors c_m,
+   * mindestens auf 0.000001.
    * 
-   * @param layer Der Layer, dessen Eintrag in der Gewichtsvernderungsmatrix
-   *              verringert werden soll.
-   * @param i     Die Reihe des Eintrags in der Matrix.
-   * @param j     Die Spalte des Eintrags in der Matrix.
-   */
-  private void decreaseWeightsDiff(Layer layer, int i, int j) {
-    layer.getWeightsDiff().set(i, j,
-        Math.max(layer.getWeightsDiff().get(i, j) * c_m, 0.000001));
+   * @param diff Die bisherige Gewichtsnderung.
+   * @return Die verringerte Gewichtsnderung.
+   */
+  private double decreaseWeightsDiff(double diff) {
+    return Math.max(diff * c_m, 0.000001);
+  }
+
+
+  /**
+   * Trainiert einen zusammenhngenden Teil der Patterns auf einem Netz und
+   * sammelt dabei dessen Gradienten. Die Gewichte werden nicht verndert. Fr
+   * das parallele Training besitzt jeder Thread einen eigenen Arbeiter mit
+   * eigenem Netz (siehe trainParallel).
+   */
+  private class Worker {
+
+    /**
+     * Das Netz, in dessen Layern die Gradienten gesammelt werden.
+     */
+    private final Net net;
+
+    /**
+     * Die Eingabevektoren des aktuellen Stapels, einer pro Reihe.
+     */
+    private Matrix batchInputs;
+
+    /**
+     * Die Soll-Ausgabevektoren des aktuellen Stapels, einer pro Reihe.
+     */
+    private Matrix batchOutputs;
+
+    /**
+     * Die Prioritten der Patterns des aktuellen Stapels.
+     */
+    private Vektor batchPriorities;
+
+    /**
+     * batchInputs des vorletzten Stapels, falls dieser eine andere Gre
+     * hatte, in der Regel also des krzeren letzten Stapels einer Epoche
+     * (siehe trainBatch).
+     */
+    private Matrix spareInputs;
+
+    /**
+     * batchOutputs des vorletzten Stapels (siehe spareInputs).
+     */
+    private Matrix spareOutputs;
+
+    /**
+     * batchPriorities des vorletzten Stapels (siehe spareInputs).
+     */
+    private Vektor sparePriorities;
+
+
+    /**
+     * Erstellt einen Arbeiter fr das angegebene Netz.
+     * 
+     * @param net Das Netz, auf dem trainiert wird.
+     */
+    Worker(Net net) {
+      this.net = net;
+    }
+
+
+    /**
+     * Trainiert die Patterns from bis (ausschlielich) to, einzeln oder in
+     * Stapeln der eingestellten Gre (siehe Training.train).
+     * 
+     * @param from Der Index des ersten Patterns.
+     * @param to   Der Index nach dem letzten Pattern.
+     * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
+     *                   Matrizen.
+     */
+    void train(int from, int to) throws Exception {
+      if (batchSize > 1) {
+        for (int i = from; i < to; i += batchSize)
+          trainBatch(i, Math.min(i + batchSize, to));
+      } else {
+        for (int i = from; i < to; i++) {
+          DataPattern p = patterns[i];
+
+          // Die Prioritt geht als Faktor in die Deltawerte ein, statt das
+          // Pattern "priority"-mal zu wiederholen
+          if (p.getPriority() > 0) {
+            net.forward(p.getInput());
+            backpropagation(p);
+          }
+        }
+      }
+    }
+
+
+    /**
+     * Implementiert die gewhnliche Backpropagation. Hierbei handelt es sich um
+     * die Fehlerrckbertragung vom letzten (Ausgabe-)Layer bis hin zum ersten
+     * Hidden-Layer. Die Deltawerte des Outputlayers werden mit der Prioritt
+     * des Patterns multipliziert.
+     * 
+     * @param pattern Das aktuelle Trainingspattern.
+     * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
+     *                   Matrizen.
+     */
+    private void backpropagation(DataPattern pattern) throws Exception {
+      var layerIter = net.end();
+      Layer layer = layerIter.previous();
+
+      layer.addGradient(
+          layer.calcDelta(pattern.getOutput(), pattern.getPriority()));
+
+      while (layerIter.hasPrevious()) {
+        Layer next = layer;
+        layer = layerIter.previous();
+
+        layer.addGradient(layer.calcDelta(next));
+      }
+    }
+
+
+    /**
+     * Die Backpropagation fr einen ganzen Stapel von Patterns (siehe
+     * backpropagation). Jeder Schritt rechnet mit Matrizen, deren Reihen die
+     * einzelnen Patterns sind. Die Prioritten gehen als Faktor in die
+     * Deltawerte des Outputlayers ein, statt das Pattern mehrfach zu
+     * trainieren.
+     * 
+     * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
+     *                   Matrizen.
+     */
+    private void batchBackpropagation() throws Exception {
+      var layerIter = net.end();
+      Layer layer = layerIter.previous();
+
+      layer.addBatchGradient(
+          layer.calcBatchDelta(batchOutputs, batchPriorities));
+
+      while (layerIter.hasPrevious()) {
+        Layer next = layer;
+        layer = layerIter.previous();
+
+        layer.addBatchGradient(layer.calcBatchDelta(next));
+      }
+    }
+
+
+    /**
+     * Trainiert die Patterns from bis (ausschlielich) to als einen Stapel.
+     * 
+     * @param from Der Index des ersten Patterns.
+     * @param to   Der Index nach dem letzten Pattern.
+     * @throws Exception Mglicher Fehler bei der Rechnung mit Vektoren und
+     *                   Matrizen.
+     */
+    private void trainBatch(int from, int to) throws Exception {
+      int n = to - from;
+
+      // Volle Stapel und der letzte Stapel wechseln sich ab, ihre Matrizen
+      // werden getauscht statt neu angelegt
+      if (batchInputs == null || batchInputs.getRows() != n) {
+        Matrix inputs = spareInputs;
+        Matrix outputs = spareOutputs;
+        Vektor priorities = sparePriorities;
+
+        spareInputs = batchInputs;
+        spareOutputs = batchOutputs;
+        sparePriorities = batchPriorities;
+
+        if (inputs == null || inputs.getRows() != n) {
+          inputs = new Matrix(n, patterns[from].getInput().getLength());
+          outputs = new Matrix(n, patterns[from].getOutput().getLength());
+          priorities = new Vektor(n);
+        }
+
+        batchInputs = inputs;
+        batchOutputs = outputs;
+        batchPriorities = priorities;
+      }
+
+      for (int p = 0; p < n; p++) {
+        batchInputs.setRow(p, patterns[from + p].getInput());
+        batchOutputs.setRow(p, patterns[from + p].getOutput());
+        batchPriorities.set(p, patterns[from + p].getPriority());
+      }
+
+      net.forwardBatch(batchInputs);
+      batchBackpropagation();
+    }
   }
 
 
@@ -239,6 +529,83 @@ public class Training {
   }
 
 
+  /**
+   * Gibt die Anzahl der Patterns zurck, die gemeinsam als Stapel durch das
+   * Netz geschickt werden.
+   * 
+   * @return Die Stapelgre.
+   */
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+
+  /**
+   * Legt fest, wie viele Patterns gemeinsam als Stapel durch das Netz
+   * geschickt werden. Grere Stapel machen aus vielen kleinen
+   * Matrix-Vektor-Produkten wenige groe Matrix-Matrix-Produkte, bentigen
+   * aber pro Layer Speicher fr die Ausgaben und Deltawerte des ganzen
+   * Stapels. Bei 1 (voreingestellt) wird jedes Pattern einzeln trainiert.
+   * 
+   * @param batchSize Die Stapelgre, mindestens 1.
+   */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = Math.max(1, batchSize);
+  }
+
+
+  /**
+   * Gibt die Anzahl der Threads zurck, auf die die Patterns einer Epoche
+   * aufgeteilt werden.
+   * 
+   * @return Die Anzahl der Threads.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+
+  /**
+   * Legt fest, auf wie viele Threads die Patterns einer Epoche aufgeteilt
+   * werden (siehe trainParallel). Jeder weitere Thread bentigt Speicher fr
+   * einen eigenen Satz Gradienten in der Gre der Gewichte. Die Layer rechnen
+   * dabei jeweils in einem Thread, eine zustzliche Aufteilung ber
+   * Net.setExecution lohnt sich dann nicht mehr. Bei 1 (voreingestellt) wird
+   * im aufrufenden Thread trainiert.
+   * 
+   * @param threads Die Anzahl der Threads, mindestens 1.
+   */
+  public void setThreads(int threads) {
+    this.threads = Math.max(1, threads);
+  }
+
+
+  /**
+   * Gibt zurck, nach wie vielen Epochen der Stand der Gewichte
+   * verffentlicht wird.
+   * 
+   * @return Die Anzahl Epochen zwischen zwei Verffentlichungen.
+   */
+  public int getPublishInterval() {
+    return publishInterval;
+  }
+
+
+  /**
+   * Legt fest, nach wie vielen Epochen der Stand der Gewichte fr die
+   * Eingaben ber Net.feed verffentlicht wird (siehe Net.publish). Jede
+   * Verffentlichung kopiert alle Gewichte einmal, bei sehr kurzen Epochen
+   * kann sich ein grerer Abstand lohnen. Am Ende von train(int) wird der
+   * Endstand immer verffentlicht. Voreingestellt ist 1.
+   * 
+   * @param publishInterval Die Anzahl Epochen zwischen zwei
+   *                        Verffentlichungen, mindestens 1.
+   */
+  public void setPublishInterval(int publishInterval) {
+    this.publishInterval = Math.max(1, publishInterval);
+  }
+
+
   /**
    * Gibt die aktuelle Epoche zurck, also die bisherige Anzahl der
    * Wiederholungen des Trainings.
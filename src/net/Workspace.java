@@ -0,0 +1,59 @@
+package net;
+
+import math.Vektor;
+
+
+/**
+ * Die Zwischenergebnisse einer Eingabe in ein neuronales Netz, also die
+ * Ausgabevektoren aller Layer. Ein Workspace gehrt dem Aufrufer (bzw. einem
+ * Thread) und nicht dem Netz. So knnen beliebig viele Eingaben gleichzeitig
+ * und neben dem Training durch dasselbe Netz geschickt werden, ohne sich
+ * gegenseitig die Zwischenergebnisse zu berschreiben (siehe
+ * Net.feed(Vektor, Workspace)).
+ *
+ * Ein Workspace darf nicht von mehreren Threads gleichzeitig benutzt werden.
+ *
+ * @author Roland Vlker
+ */
+public class Workspace {
+
+  /**
+   * Die Ausgabevektoren der Layer in der Reihenfolge des Netzes.
+   */
+  private final Vektor outputs[];
+
+
+  /**
+   * Erstellt einen Workspace passend zur Struktur des angegebenen Netzes.
+   *
+   * @param net Das Netz, fr dessen Eingaben der Workspace gedacht ist.
+   */
+  public Workspace(Net net) {
+    outputs = new Vektor[net.getStructure().size() - 1];
+
+    for (int i = 0; i < outputs.length; i++)
+      outputs[i] = new Vektor(net.get(i).getSize());
+  }
+
+
+  /**
+   * Gibt den Ausgabevektor eines Layers zurck.
+   *
+   * @param i Der Index des Layers.
+   * @return Der Ausgabevektor des Layers mit dem angegebenen Index.
+   */
+  Vektor get(int i) {
+    return outputs[i];
+  }
+
+
+  /**
+   * Gibt den Ausgabevektor des letzten Layers nach der letzten Eingabe
+   * zurck. Er wird bei der nchsten Eingabe berschrieben.
+   *
+   * @return Der Ausgabevektor des letzten Layers.
+   */
+  public Vektor getOutput() {
+    return outputs[outputs.length - 1];
+  }
+}